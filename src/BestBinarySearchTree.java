@@ -1,8 +1,10 @@
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 import net.datastructures.LinkedBinaryTree;
 import net.datastructures.Position;
+import dsaj.trees.TidyLayout;
 import dsaj.trees.TraversalExamples;
 
 /**
@@ -10,6 +12,39 @@ import dsaj.trees.TraversalExamples;
  */
 public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryTree<E> {
     private int height;
+    private boolean selfBalancing; // keeps the tree AVL balanced after each insert/remove
+
+    private ArrayList<Position<E>> levelOrder; // every position, one level after another
+    private int[] levelStart; // level n is levelOrder[levelStart[n-1] .. levelStart[n]-1]
+    private int levelsModCount = -1; // modCount when the levels were last built, -1 for never
+
+    /**
+     * node that remembers the height of its own subtree (a leaf is 1, to match
+     * the height field), so heights can be kept up to date one path at a time.
+     */
+    protected static class HeightNode<E> extends Node<E> {
+        private int height = 1;
+
+        HeightNode(E e, Node<E> parent, Node<E> leftChild, Node<E> rightChild) {
+            super(e, parent, leftChild, rightChild);
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public void setHeight(int value) {
+            height = value;
+        }
+    }// HeightNode class
+
+    /**
+     * makes every node a HeightNode (rather than a plain Node)
+     */
+    @Override
+    protected Node<E> createNode(E e, Node<E> parent, Node<E> left, Node<E> right) {
+        return new HeightNode<>(e, parent, left, right);
+    }// createNode method
 
     /**
      * This convenience constructor will pre-populate the tree using the array of
@@ -30,6 +65,10 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
      * @param doItRight
      */
     public BestBinarySearchTree(E[] elements, boolean doItRight) {
+        if (doItRight && isSorted(elements)) { // sorted input can skip insert() entirely
+            buildBalanced(elements);
+            return;
+        }
         for (E dataToTree : elements) { // iterate the elements and build the tree...
             if (doItRight) {
                 insert(dataToTree); // the right way or...
@@ -40,40 +79,158 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
         setHeight();
     }// BestBinarySearchTree constructor
 
+    /**
+     * builds an empty tree, ready for insert()
+     */
+    public BestBinarySearchTree() {
+        this(false);
+    }// BestBinarySearchTree constructor
+
+    /**
+     * builds an empty tree, ready for insert(). if selfBalancing is true the tree
+     * rotates itself back into AVL shape after every insert and remove, so
+     * contains stays O(log n) no matter what order things show up in.
+     * 
+     * @param selfBalancing
+     */
+    public BestBinarySearchTree(boolean selfBalancing) {
+        this.selfBalancing = selfBalancing;
+    }// BestBinarySearchTree constructor
+
+    /**
+     * builds a tree of minimal height from elements that are already in
+     * increasing order. duplicates are rejected with an illegal state exception,
+     * the same as insert() would.
+     * 
+     * @param sortedElements elements in increasing order
+     * @return the new tree
+     */
+    public static <E extends Comparable<E>> BestBinarySearchTree<E> fromSorted(E[] sortedElements) {
+        if (!isSorted(sortedElements)) {
+            throw new IllegalArgumentException("elements are not in increasing order");
+        }
+        BestBinarySearchTree<E> tree = new BestBinarySearchTree<>();
+        tree.buildBalanced(sortedElements);
+        return tree;
+    }// fromSorted method
+
+    /**
+     * single linear pass that checks whether the elements are in increasing
+     * order. a repeated element means the input can never be a valid tree, so
+     * it throws an illegal state exception right away.
+     * 
+     * @param elements
+     * @return true if every element is bigger than the one before it
+     */
+    private static <E extends Comparable<E>> boolean isSorted(E[] elements) {
+        boolean sorted = true;
+        for (int i = 1; i < elements.length; i++) {
+            int comp = elements[i - 1].compareTo(elements[i]);
+            if (comp == 0) { // neighbors match, that's a duplicate
+                throw new IllegalStateException();
+            } else if (comp > 0) {
+                sorted = false; // out of order, but keep looking for neighboring duplicates
+            }
+        }
+        return sorted;
+    }// isSorted method
+
+    /**
+     * builds a perfectly balanced tree out of sorted elements by making the
+     * middle element the root and doing the same for each half. O(n) since
+     * nothing is ever compared or searched for.
+     * 
+     * @param sortedElements
+     */
+    private void buildBalanced(E[] sortedElements) {
+        if (sortedElements.length > 0) {
+            int mid = (sortedElements.length - 1) / 2;
+            Position<E> top = addRoot(sortedElements[mid]);
+            buildBalanced(sortedElements, top, 0, mid - 1, true);
+            buildBalanced(sortedElements, top, mid + 1, sortedElements.length - 1, false);
+        }
+        setHeight();
+    }// buildBalanced method
+
+    /**
+     * recursively hangs the middle of sortedElements[low..high] off of parent,
+     * then does the same with both halves. recursion depth is only log n.
+     * 
+     * @param sortedElements
+     * @param parent    the position the new subtree hangs from
+     * @param low       first index of the range
+     * @param high      last index of the range
+     * @param isLeft    whether the subtree is the left or right child of parent
+     */
+    private void buildBalanced(E[] sortedElements, Position<E> parent, int low, int high, boolean isLeft) {
+        if (low > high) {
+            return; // nothing left in this half
+        }
+        int mid = (low + high) / 2;
+        Position<E> child = (isLeft ? addLeft(parent, sortedElements[mid]) : addRight(parent, sortedElements[mid]));
+        buildBalanced(sortedElements, child, low, mid - 1, true);
+        buildBalanced(sortedElements, child, mid + 1, high, false);
+    }// buildBalanced method
+
     /**
      * inserts element at its correct Position, and returns that Position. If the
-     * element already exists, throw an illegal state exception.
+     * element already exists, throw an illegal state exception. duplicates are
+     * caught on the same walk down that finds the spot, so each level only costs
+     * one comparison.
      * 
      * @param element
      * @return
      */
     protected Position<E> insert(E element) throws IllegalStateException {
-        if (contains(element) != null) { // if the item exists in the tree, throw exception
-            throw new IllegalStateException();
-        }
         if (root == null) {
-            return addRoot(element); // give it a root if it has none
+            return attached(addRoot(element)); // give it a root if it has none
         }
         Position<E> walk = root; // walker will travel to the right placement
-        while (walk != null) {
-            if (element.compareTo(walk.getElement()) < 0) { // if element is less than walk...
-                if (left(walk) == null) {
-                    return addLeft(walk, element); // make it the left child or...
-                    
-                } else {
-                    walk = left(walk); // move on to the left child.
+        while (true) {
+            int comp = element.compareTo(walk.getElement());
+            if (comp == 0) { // if the item exists in the tree, throw exception
+                throw new IllegalStateException();
+            } else if (comp < 0) { // if element is less than walk...
+                Position<E> leftChild = left(walk);
+                if (leftChild == null) {
+                    return attached(addLeft(walk, element)); // make it the left child or...
                 }
+                walk = leftChild; // move on to the left child.
             } else {
-                if (right(walk) == null) { // if element is greater than walk...
-                    return addRight(walk, element); // make it the right child or...
-                } else {
-                    walk = right(walk); // move on to the right child.
+                Position<E> rightChild = right(walk); // if element is greater than walk...
+                if (rightChild == null) {
+                    return attached(addRight(walk, element)); // make it the right child or...
                 }
+                walk = rightChild; // move on to the right child.
             }
         }
-        return null;
     }// insert method
 
+    /**
+     * fixes up heights (and the balance, if selfBalancing) on the path above a
+     * freshly added leaf, then hands the leaf back.
+     * 
+     * @param leaf
+     * @return leaf
+     */
+    private Position<E> attached(Position<E> leaf) {
+        rebalance(parent(leaf));
+        return leaf;
+    }// attached method
+
+    /**
+     * inserts every element in turn. insert keeps the heights current as it
+     * goes, so nothing is recounted at the end. stops with an illegal state
+     * exception at the first duplicate (anything before it stays in the tree).
+     * 
+     * @param elements
+     */
+    public void insertAll(Iterable<E> elements) throws IllegalStateException {
+        for (E element : elements) {
+            insert(element);
+        }
+    }// insertAll method
+
     /**
      * inserts element to the left of the leftmost node in the tree, ignoring its
      * actual value. This breaks the binary search tree property, hence the name.
@@ -83,13 +240,13 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
      */
     private Position<E> brokenInsert(E element) {
         if (root() == null) { // give it a root
-            return addRoot(element);
+            return attached(addRoot(element));
         } else {
             Position<E> walk = root();
             while (left(walk) != null) { // element is placed as the furthest left child.
                 walk = left(walk);
             }
-            return addLeft(walk, element);
+            return attached(addLeft(walk, element));
         }
     }// brokenInsert method
 
@@ -99,29 +256,33 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
      * @return
      */
     public boolean isBinarySearchTree() {
-        return isBinarySearchTree(root); // start recursive search at the root
+        return isBinarySearchTree(root); // start the search at the root
     }// isBinarySearchTree method
 
     /**
      * returns true if the tree is a binary search tree, false otherwise.
-     * recursive implementation
+     * iterative implementation, so a long skinny tree can't blow the stack
      * 
      * @param curPos
      * @return
      */
     private boolean isBinarySearchTree(Position<E> curPos) {
-        Position<E> leftChild = left(curPos); // get left child or null
-        Position<E> rightChild = right(curPos); // get right child or null
-        if (leftChild != null) {
-            if (curPos.getElement().compareTo(leftChild.getElement()) < 0) { // if an element is out of place...
-                return false;
-            }
-            return isBinarySearchTree(leftChild);
-        } else if (rightChild != null) {
-            if (curPos.getElement().compareTo(rightChild.getElement()) > 0) { // return false
-                return false;
+        while (curPos != null) {
+            Position<E> leftChild = left(curPos); // get left child or null
+            Position<E> rightChild = right(curPos); // get right child or null
+            if (leftChild != null) {
+                if (curPos.getElement().compareTo(leftChild.getElement()) < 0) { // if an element is out of place...
+                    return false;
+                }
+                curPos = leftChild;
+            } else if (rightChild != null) {
+                if (curPos.getElement().compareTo(rightChild.getElement()) > 0) { // return false
+                    return false;
+                }
+                curPos = rightChild;
+            } else {
+                curPos = null; // hit a leaf
             }
-            return isBinarySearchTree(rightChild);
         }
         return true; // if everything checks out, it's definitely a binary search tree.
     }// isBinarySearchTree method
@@ -145,28 +306,23 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
     }// contains method
 
     /**
-     * recursively searches a verified binary search tree by iterating through each
-     * position
-     * and its children until all spots are checked or the element is found
+     * searches a verified binary search tree by walking down from curPos,
+     * going left or right at each position until the element is found or
+     * there's nowhere left to go
      * 
      * @param element
      * @param curPos
      * @return
      */
     private Position<E> contains(E element, Position<E> curPos) {
-        if (curPos.getElement().compareTo(element) == 0) { // if curPos is our element, return it
-            return curPos;
-        } else if (element.compareTo(curPos.getElement()) < 0) {
-            if (left(curPos) == null) { // if element is less than curPos element, check it's child or return null
-                return null;
+        while (curPos != null) {
+            int comp = element.compareTo(curPos.getElement());
+            if (comp == 0) { // if curPos is our element, return it
+                return curPos;
             }
-            return contains(element, left(curPos));
-        } else {
-            if (right(curPos) == null) { // if element is greater than curPos element, check it's child or return null
-                return null;
-            }
-            return contains(element, right(curPos));
+            curPos = (comp < 0 ? left(curPos) : right(curPos)); // otherwise check the child on its side
         }
+        return null; // ran out of tree
     }// contains method
 
     /**
@@ -187,6 +343,27 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
         return null; // or return null
     }// badTreeContains method
 
+    /**
+     * makes a read-only, array based copy of the tree that answers contains()
+     * without any pointer chasing. later changes to this tree don't show up in
+     * the copy. throws an illegal state exception if the tree isn't actually in
+     * binary search tree order (like a brokenInsert tree).
+     * 
+     * @return
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public FrozenBinarySearchTree<E> freeze() throws IllegalStateException {
+        E[] sorted = (E[]) new Comparable[size()];
+        int i = 0;
+        for (Position<E> curPos : inorder()) { // in order, so it should come out sorted
+            if (i > 0 && sorted[i - 1].compareTo(curPos.getElement()) >= 0) {
+                throw new IllegalStateException("not a binary search tree");
+            }
+            sorted[i++] = curPos.getElement();
+        }
+        return new FrozenBinarySearchTree<>(sorted);
+    }// freeze method
+
     /**
      * This will print the tree, leveraging method(s) in
      * dsaj.trees.TraversalExamples.
@@ -204,124 +381,311 @@ public class BestBinarySearchTree<E extends Comparable<E>> extends LinkedBinaryT
 
     /**
      * calculates the height of the tree. (I realize it's off by one but wanted
-     * to avoid a lot of +1's later.)
+     * to avoid a lot of +1's later.) this is a full recount that also refreshes
+     * every node's stored height -- insert and remove keep those current on their
+     * own, so it's only needed after changing the tree some other way (attach).
      */
     public void setHeight() {
-        if (root == null) {
-            height = 0;
+        Position<E> walk = (root == null ? null : firstPostorder(root));
+        while (walk != null) { // postorder, so both children are done before their parent
+            recomputeHeight(walk);
+            walk = nextPostorder(walk);
         }
-        height = setHeight(root, 0);
+        height = heightOf(root);
     }//setHeight method
 
     /**
-     * recursively calculates the height of the tree.
+     * returns the first position of a postorder walk of curPos's subtree, by
+     * heading down (left when possible) until hitting a leaf
+     * 
      * @param curPos
-     * @param height
      * @return
      */
-    private int setHeight(Position<E> curPos, int height) {
-        if (curPos == null) {
-            return height;
+    private Position<E> firstPostorder(Position<E> curPos) {
+        while (true) {
+            if (left(curPos) != null) {
+                curPos = left(curPos);
+            } else if (right(curPos) != null) {
+                curPos = right(curPos);
+            } else {
+                return curPos;
+            }
         }
-        height++;
-        return Math.max(setHeight(left(curPos), height), setHeight(right(curPos), height)); //travels down the tree looking for the longest branch
-    }//setHeight method
+    }//firstPostorder method
+
+    /**
+     * returns the position after curPos in a postorder walk of the whole tree
+     * (null when curPos is the root). only follows parent links, so it needs no
+     * stack at all.
+     * 
+     * @param curPos
+     * @return
+     */
+    private Position<E> nextPostorder(Position<E> curPos) {
+        Position<E> above = parent(curPos);
+        if (above == null) {
+            return null; // the root is always last
+        }
+        if (curPos == left(above) && right(above) != null) {
+            return firstPostorder(right(above)); // finished the left side, start on the right
+        }
+        return above;
+    }//nextPostorder method
+
+    /**
+     * returns the height of the tree (counting the root as 1), which is kept
+     * up to date as the tree changes so it's O(1).
+     * 
+     * @return
+     */
+    public int getHeight() {
+        return height;
+    }//getHeight method
+
+    /**
+     * returns whether this tree balances itself
+     * 
+     * @return
+     */
+    public boolean isSelfBalancing() {
+        return selfBalancing;
+    }//isSelfBalancing method
+
+    /**
+     * removes the node at p and replaces it with its child, if any, then fixes
+     * up the heights (and the balance) above it.
+     */
+    @Override
+    public E remove(Position<E> p) throws IllegalArgumentException {
+        Position<E> above = parent(p);
+        E removed = super.remove(p);
+        rebalance(above);
+        return removed;
+    }//remove method
+
+    //---------- support for incremental heights and AVL balancing ----------
+
+    /**
+     * returns the stored height of the subtree at p, 0 for a missing child
+     */
+    private int heightOf(Position<E> p) {
+        return (p == null ? 0 : ((HeightNode<E>) p).getHeight());
+    }//heightOf method
+
+    /**
+     * recomputes the height of p based on its children's heights
+     */
+    private void recomputeHeight(Position<E> p) {
+        ((HeightNode<E>) p).setHeight(1 + Math.max(heightOf(left(p)), heightOf(right(p))));
+    }//recomputeHeight method
+
+    /**
+     * returns whether p has balance factor between -1 and 1 inclusive
+     */
+    private boolean isBalanced(Position<E> p) {
+        return Math.abs(heightOf(left(p)) - heightOf(right(p))) <= 1;
+    }//isBalanced method
+
+    /**
+     * returns a child of p with height no smaller than that of the other child,
+     * breaking ties by matching p's own orientation
+     */
+    private Position<E> tallerChild(Position<E> p) {
+        if (heightOf(left(p)) > heightOf(right(p))) {
+            return left(p);
+        }
+        if (heightOf(left(p)) < heightOf(right(p))) {
+            return right(p);
+        }
+        if (p == root || p == left(parent(p))) {
+            return left(p); // equal heights, return the aligned child
+        }
+        return right(p);
+    }//tallerChild method
+
+    /**
+     * walks up from p recomputing heights, doing a trinode restructure at any
+     * unbalanced spot if selfBalancing. stops as soon as a height doesn't change
+     * since nothing above it can have changed either. (same approach as
+     * net.datastructures.AVLTreeMap)
+     * 
+     * @param p the lowest position whose height might have changed (can be null)
+     */
+    private void rebalance(Position<E> p) {
+        int oldHeight, newHeight;
+        while (p != null) {
+            oldHeight = heightOf(p);
+            if (selfBalancing && !isBalanced(p)) { // imbalance detected
+                p = restructure(tallerChild(tallerChild(p)));
+                recomputeHeight(left(p));
+                recomputeHeight(right(p));
+            }
+            recomputeHeight(p);
+            newHeight = heightOf(p);
+            if (oldHeight == newHeight) {
+                break;
+            }
+            p = parent(p);
+        }
+        height = heightOf(root);
+    }//rebalance method
+
+    /**
+     * relinks a parent node with its oriented child node (child may be null)
+     */
+    private void relink(Node<E> parent, Node<E> child, boolean makeLeftChild) {
+        if (child != null) {
+            child.setParent(parent);
+        }
+        if (makeLeftChild) {
+            parent.setLeft(child);
+        } else {
+            parent.setRight(child);
+        }
+    }//relink method
+
+    /**
+     * rotates p above its parent, the same way
+     * TreeMap.BalanceableBinaryTree.rotate does. caller makes sure p isn't the root.
+     */
+    private void rotate(Position<E> p) {
+        Node<E> x = validate(p);
+        Node<E> y = x.getParent(); // we assume this exists
+        Node<E> z = y.getParent(); // grandparent (possibly null)
+        modCount++; // links are about to change
+        if (z == null) {
+            root = x; // x becomes root of the tree
+            x.setParent(null);
+        } else {
+            relink(z, x, y == z.getLeft()); // x becomes direct child of z
+        }
+        if (x == y.getLeft()) { // now rotate x and y, including the middle subtree
+            relink(y, x.getRight(), true);
+            relink(x, y, false);
+        } else {
+            relink(y, x.getLeft(), false);
+            relink(x, y, true);
+        }
+    }//rotate method
+
+    /**
+     * trinode restructuring of x, its parent and its grandparent. returns the
+     * position that ends up at the top of the restructured subtree.
+     */
+    private Position<E> restructure(Position<E> x) {
+        Position<E> y = parent(x);
+        Position<E> z = parent(y);
+        if ((x == right(y)) == (y == right(z))) { // matching alignments
+            rotate(y); // single rotation
+            return y;
+        } else { // opposite alignments
+            rotate(x); // double rotation
+            rotate(x);
+            return x;
+        }
+    }//restructure method
 
     /**
      * draws the tree using stdDraw
      */
     public void drawTree() {
-        int drawHeight = height * 100; //easily scales the tree for the heights we're focusing on. 
-        int drawWidth =  height * 100;
-        final int RADIUS = 20; //found 20 looks nice, let's lock it in
-        StdDraw.setCanvasSize(drawWidth, drawHeight); 
-        StdDraw.setScale(0, drawHeight);
-        drawTrees(1, drawHeight, drawWidth, RADIUS, new HashMap<>()); //passes along the measurements and begins drawing the tree at the top
+        TreeRenderer.draw(layoutTree());
     }//drawTree method
 
     /**
-     * recursively draws the tree level by level
+     * draws the tree into a PNG file without opening a window
      * 
-     * @param level             level being drawn
-     * @param drawHeight        height of canvas
-     * @param drawWidth         width of canvas
-     * @param radius            radius of each circle
-     * @param parentPositions   the positions and their coordinates on the stdDraw canvas
-     */
-    public void drawTrees(int level, int drawHeight, int drawWidth, int radius, HashMap<Position<E>, double[]> parentPositions) {
-        double nodeMaxOnLevel = Math.pow(2, level - 1); //helps determine the amount...
-        double numberSplitsOnAxis = nodeMaxOnLevel + 1;    //of splits on the x axis we need to make enough space.
-        double yPosition = drawHeight - (level * (drawHeight / (height + 1))); //splits the y plane into (height+1) spaces and selects the one we should be on
-        ArrayList<Position<E>> nodesAtLevel = getNodesAtHeight(level); //uses helper method to get all of the nodes at the current level
-        HashMap<Position<E>, double[]> curPositions = new HashMap<>(); //prepares a hashmap to store these nodes and their coordinates to draw lines to in the next level
-        for (int i = 0; i < nodeMaxOnLevel; i++) { //iterates through the nodes at this level and plots them...
-            Position<E> curNode = nodesAtLevel.get(i);
-            if (curNode != null) {
-                double xPosition = drawWidth / numberSplitsOnAxis + (i * (drawWidth / numberSplitsOnAxis));
-                StdDraw.setPenColor(StdDraw.WHITE);
-                StdDraw.filledCircle(xPosition, yPosition, radius);
-                StdDraw.setPenColor(StdDraw.BLACK);
-                StdDraw.circle(xPosition, yPosition, radius);
-                StdDraw.text(xPosition, yPosition, curNode.getElement().toString());
-                double[] xyVals = {xPosition, yPosition};
-                curPositions.put(curNode, xyVals); //and stores them for the next level down. 
-                if (curNode != root) {
-                    double[] parentData = parentPositions.get(parent(curNode)); //to draw a line, start at the current node, find its parent in the hashmap...
-                    StdDraw.line(xPosition, yPosition, parentData[0], parentData[1]); //and finish at the parents coordinates. 
-                }
-            }
-        }
-        if (level != height) { //continue drawing until we've done the whole thing.
-            drawTrees(++level, drawHeight, drawWidth, radius, curPositions);
+     * @param filename
+     * @throws IOException if the file can't be written
+     */
+    public void saveTree(String filename) throws IOException {
+        TreeRenderer.save(layoutTree(), filename);
+    }//saveTree method
+
+    /**
+     * works out where every node goes on the canvas, with circles of radius 20
+     * 
+     * @return
+     */
+    public TreeLayout<E> layoutTree() {
+        return layoutTree(20); //found 20 looks nice, let's lock it in
+    }//layoutTree method
+
+    /**
+     * works out where every node goes on the canvas using a tidy layout
+     * (dsaj.trees.TidyLayout): parents sit centered over their children and
+     * subtrees are packed as close as they can go without overlapping. it's
+     * O(n), and the canvas grows with how wide the tree actually is instead of
+     * with its height, so deep or lopsided trees don't pile up on each other.
+     * 
+     * @param radius radius of each circle, the spacing scales with it
+     * @return
+     */
+    public TreeLayout<E> layoutTree(int radius) {
+        TidyLayout<E> tidy = new TidyLayout<>(this);
+        double unit = 2.5 * radius; //circle diameter plus a little gap between neighbours
+        double levelGap = 5 * radius;
+        int drawWidth = (int) Math.ceil((tidy.getWidth() + 2) * unit); //one unit of margin on each side
+        int drawHeight = (int) Math.ceil((tidy.getDepth() + 2) * levelGap);
+        double[] x = new double[tidy.size()];
+        double[] y = new double[tidy.size()];
+        int[] parent = new int[tidy.size()];
+        ArrayList<Position<E>> positions = new ArrayList<>(tidy.size());
+        for (int i = 0; i < tidy.size(); i++) {
+            positions.add(tidy.getPosition(i));
+            x[i] = (tidy.getX(i) + 1) * unit;
+            y[i] = drawHeight - (tidy.getY(i) + 1) * levelGap; //root on top
+            parent[i] = tidy.getParent(i);
         }
-    }//drawTrees method
+        return new TreeLayout<>(positions, x, y, parent, drawWidth, drawHeight, radius);
+    }//layoutTree method
 
     /**
-     * returns an arrayList containing all of the nodes at the specified height
+     * returns an arrayList containing all of the nodes at the specified level
+     * (the root is level 1), from left to right. empty spots are skipped.
      * 
      * @param levelToSearch
      * @return
      */
     public ArrayList<Position<E>> getNodesAtHeight(int levelToSearch) {
-        ArrayList<Position<E>> nodeSet = new ArrayList<>();
-        if (levelToSearch == 1) {
-            nodeSet.add(root); //easy level one only has the root
-        } else {
-            nodeSet.add(root); //pass the root in and search the next
-            nodeSet = getNodesAtHeight(levelToSearch, 2, nodeSet);//set height to search as 2 as it's the one after root.
+        refreshLevels();
+        if (levelToSearch < 1 || levelToSearch >= levelStart.length) {
+            return new ArrayList<>(); //no such level
         }
-        return nodeSet;
+        return new ArrayList<>(levelOrder.subList(levelStart[levelToSearch - 1], levelStart[levelToSearch]));
     }//getNodesAtHeight method
 
     /**
-     * recursively grabs the nodes at the specified level by going down 1-1 and getting all of the children. then
-     * their children etc etc.
-     * 
-     * @param levelToSearch  target level
-     * @param currentLevel  current level
-     * @param nodeSet the parents of the current level
-     * @return the nodes at the current level
-     */
-    public ArrayList<Position<E>> getNodesAtHeight(int levelToSearch, int currentLevel, ArrayList<Position<E>> nodeSet) {
-        ArrayList<Position<E>> nodesAtCurrentHeight = new ArrayList<>();
-        for (Position<E> curPos : nodeSet) { //iterate through the parents of the current level
-            Position<E> leftChild = (curPos == null ? null : left(curPos));
-            Position<E> rightChild = (curPos == null ? null : right(curPos));
-            if (leftChild == null) {
-                nodesAtCurrentHeight.add(null); //preserve empty spaces
-            } else {
-                nodesAtCurrentHeight.add(leftChild); //or pass in actual nodes
-            }
-            if (rightChild == null) {
-                nodesAtCurrentHeight.add(null);
-            } else {
-                nodesAtCurrentHeight.add(rightChild);
-            }
+     * rebuilds the level index with one breadth first pass, unless the tree
+     * hasn't changed since the last time.
+     */
+    private void refreshLevels() {
+        if (levelsModCount == modCount) {
+            return; //still good
         }
-        if (levelToSearch == currentLevel) { //if this was the level target, send em out.
-            return nodesAtCurrentHeight;
+        levelOrder = new ArrayList<>(size());
+        int[] starts = new int[size() + 1];
+        int levels = 0;
+        if (root != null) {
+            levelOrder.add(root);
         }
-
-        return getNodesAtHeight(levelToSearch, ++currentLevel, nodesAtCurrentHeight); //if we haven't gone far enough down, keep digging.
-    }//getNodesAtHeight method
+        int begin = 0;
+        while (begin < levelOrder.size()) { //each time around handles one level
+            starts[levels++] = begin;
+            int end = levelOrder.size();
+            for (int i = begin; i < end; i++) { //line up the children of this level for the next one
+                Position<E> curPos = levelOrder.get(i);
+                if (left(curPos) != null) {
+                    levelOrder.add(left(curPos));
+                }
+                if (right(curPos) != null) {
+                    levelOrder.add(right(curPos));
+                }
+            }
+            begin = end;
+        }
+        starts[levels] = begin;
+        levelStart = Arrays.copyOf(starts, levels + 1);
+        levelsModCount = modCount;
+    }//refreshLevels method
 }// BestBinarySearchTree class
\ No newline at end of file
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * times how long it takes to get a BestBinarySearchTree up and running from
+ * already sorted keys, comparing the bulk build against inserting one at a time,
+ * and counts how many comparisons an insert costs.
+ */
+public class BestBinarySearchTreeExperiment {
+
+    /**
+     * an int key that keeps a running tally of every compareTo call
+     */
+    public static class CountedKey implements Comparable<CountedKey> {
+        static long comparisons = 0;
+        private final int key;
+
+        public CountedKey(int key) {
+            this.key = key;
+        }
+
+        public int compareTo(CountedKey other) {
+            comparisons++;
+            return Integer.compare(key, other.key);
+        }
+
+        public String toString() {
+            return Integer.toString(key);
+        }
+    }// CountedKey class
+
+    /**
+     * returns the keys 0..n-1 in random order
+     *
+     * @param n
+     * @return
+     */
+    public static ArrayList<CountedKey> shuffledKeys(int n) {
+        ArrayList<CountedKey> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(new CountedKey(i));
+        }
+        Collections.shuffle(keys);
+        return keys;
+    }// shuffledKeys method
+
+    /**
+     * returns the integers 0..n-1 in increasing order
+     *
+     * @param n
+     * @return
+     */
+    public static Integer[] sortedKeys(int n) {
+        Integer[] keys = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        return keys;
+    }// sortedKeys method
+
+    /**
+     * builds the tree the old way, by calling insert() for every key
+     *
+     * @param keys
+     * @return
+     */
+    public static BestBinarySearchTree<Integer> insertEach(Integer[] keys) {
+        BestBinarySearchTree<Integer> tree = new BestBinarySearchTree<>();
+        for (Integer key : keys) {
+            tree.insert(key);
+        }
+        tree.setHeight();
+        return tree;
+    }// insertEach method
+
+    /**
+     * Tests the bulk build against repeated insert(), doubling n each trial.
+     * The first command line argument can be used to change the number of
+     * trials, and the second to adjust the start value. (the insert() version
+     * is quadratic on sorted input, so it gets fewer trials.)
+     */
+    public static void main(String[] args) {
+        int n = 1000; // starting value
+        int trials = 4;
+        try {
+            if (args.length > 0)
+                trials = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                n = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+        }
+        int start = n; // remember the original starting value
+
+        System.out.println("Testing fromSorted...");
+        for (int t = 0; t < trials + 6; t++) {
+            Integer[] keys = sortedKeys(n);
+            long startTime = System.currentTimeMillis();
+            BestBinarySearchTree.fromSorted(keys);
+            long elapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d took %12d milliseconds", n, elapsed));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Testing insert...");
+        n = start; // restore n to its start value
+        for (int t = 0; t < trials; t++) {
+            Integer[] keys = sortedKeys(n);
+            long startTime = System.currentTimeMillis();
+            insertEach(keys);
+            long elapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d took %12d milliseconds", n, elapsed));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Testing self-balancing insert...");
+        n = start; // restore n to its start value
+        for (int t = 0; t < trials + 6; t++) {
+            Integer[] keys = sortedKeys(n);
+            long startTime = System.currentTimeMillis();
+            BestBinarySearchTree<Integer> tree = new BestBinarySearchTree<>(true);
+            tree.insertAll(Arrays.asList(keys));
+            long elapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d took %12d milliseconds, height %d", n, elapsed, tree.getHeight()));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Testing contains vs frozen contains...");
+        n = start * 1024; // about a million to begin with
+        Random rand = new Random();
+        for (int t = 0; t < 2; t++) {
+            BestBinarySearchTree<Integer> tree = BestBinarySearchTree.fromSorted(sortedKeys(n));
+            FrozenBinarySearchTree<Integer> frozen = tree.freeze();
+            Integer[] probes = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                probes[i] = rand.nextInt(2 * n); // about half of them will miss
+            }
+            int found = 0;
+            long startTime = System.currentTimeMillis();
+            for (Integer probe : probes) {
+                found += (tree.contains(probe) != null ? 1 : 0);
+            }
+            long treeElapsed = System.currentTimeMillis() - startTime;
+            startTime = System.currentTimeMillis();
+            for (Integer probe : probes) {
+                found -= (frozen.contains(probe) ? 1 : 0);
+            }
+            long frozenElapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d contains %6d ms, frozen %6d ms%s", n, treeElapsed,
+                    frozenElapsed, (found == 0 ? "" : " (MISMATCH)")));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Testing insert+contains, boxed vs IntBinarySearchTree...");
+        n = start * 1024; // about a million to begin with
+        for (int t = 0; t < 2; t++) {
+            int[] keys = new int[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = rand.nextInt(); // (a repeat just gets skipped)
+            }
+            long startTime = System.currentTimeMillis();
+            BestBinarySearchTree<Integer> tree = new BestBinarySearchTree<>();
+            for (int key : keys) {
+                if (tree.contains(key) == null) {
+                    tree.insert(key);
+                }
+            }
+            long boxedElapsed = System.currentTimeMillis() - startTime;
+            startTime = System.currentTimeMillis();
+            IntBinarySearchTree intTree = new IntBinarySearchTree(n);
+            for (int key : keys) {
+                if (!intTree.contains(key)) {
+                    intTree.insert(key);
+                }
+            }
+            long intElapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d boxed %6d ms, int %6d ms%s", n, boxedElapsed, intElapsed,
+                    (tree.size() == intTree.size() ? "" : " (MISMATCH)")));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Testing tidy layout (random order, not balanced)...");
+        n = start * 100; // 100k nodes to begin with
+        for (int t = 0; t < trials; t++) {
+            ArrayList<Integer> keys = new ArrayList<>(Arrays.asList(sortedKeys(n)));
+            Collections.shuffle(keys);
+            BestBinarySearchTree<Integer> tree = new BestBinarySearchTree<>();
+            tree.insertAll(keys);
+            long startTime = System.currentTimeMillis();
+            TreeLayout<Integer> layout = tree.layoutTree(2);
+            long elapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d took %12d milliseconds (%dx%d)", n, elapsed, layout.getWidth(),
+                    layout.getHeight()));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Testing off-screen rendering...");
+        n = start * 10; // 10k nodes to begin with
+        for (int t = 0; t < 2; t++) {
+            ArrayList<Integer> keys = new ArrayList<>(Arrays.asList(sortedKeys(n)));
+            Collections.shuffle(keys);
+            BestBinarySearchTree<Integer> tree = new BestBinarySearchTree<>(true);
+            tree.insertAll(keys);
+            long startTime = System.currentTimeMillis();
+            TreeLayout<Integer> layout = tree.layoutTree(2); // small circles keep the image a sane size
+            long layoutElapsed = System.currentTimeMillis() - startTime;
+            startTime = System.currentTimeMillis();
+            TreeRenderer.render(layout);
+            long renderElapsed = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("n: %9d layout %6d ms, render %6d ms (%dx%d)", n, layoutElapsed,
+                    renderElapsed, layout.getWidth(), layout.getHeight()));
+            n *= 2; // double the problem size
+        }
+
+        System.out.println("Comparisons per insert (random order)...");
+        n = start; // restore n to its start value
+        for (int t = 0; t < trials + 6; t++) {
+            ArrayList<CountedKey> keys = shuffledKeys(n);
+            BestBinarySearchTree<CountedKey> tree = new BestBinarySearchTree<>();
+            CountedKey.comparisons = 0;
+            tree.insertAll(keys);
+            double fused = (double) CountedKey.comparisons / n;
+            CountedKey.comparisons = 0;
+            for (CountedKey key : keys) {
+                tree.contains(key); // the walk the old insert did before its own walk
+            }
+            double separate = fused + (double) CountedKey.comparisons / n;
+            System.out.println(String.format("n: %9d fused %8.2f  contains+insert %8.2f", n, fused, separate));
+            n *= 2; // double the problem size
+        }
+    }// main method
+}// BestBinarySearchTreeExperiment class
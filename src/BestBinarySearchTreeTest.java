@@ -0,0 +1,47 @@
+import java.util.ArrayList;
+
+import net.datastructures.Position;
+
+/**
+ * regression checks for BestBinarySearchTree. there's no test framework in
+ * this project, so main runs each check and throws an illegal state exception
+ * at the first one that fails.
+ */
+public class BestBinarySearchTreeTest {
+
+    /**
+     * sorted inserts with balancing off make a right spine, one node per level.
+     * the level index used to number spots on a level by doubling a long,
+     * which went wrong past depth 63, so this goes well beyond that.
+     */
+    public static void deepRightSpine() {
+        int n = 100;
+        ArrayList<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            keys.add(i);
+        }
+        BestBinarySearchTree<Integer> tree = new BestBinarySearchTree<>(false);
+        tree.insertAll(keys);
+        check(tree.getHeight() == n, "height " + tree.getHeight() + ", expected " + n);
+        for (int level = 1; level <= n; level++) {
+            ArrayList<Position<Integer>> nodes = tree.getNodesAtHeight(level);
+            check(nodes.size() == 1, "level " + level + " has " + nodes.size() + " nodes");
+            check(nodes.get(0).getElement() == level - 1, "level " + level + " holds " + nodes.get(0).getElement());
+        }
+        check(tree.getNodesAtHeight(n + 1).isEmpty(), "level past the bottom isn't empty");
+    }// deepRightSpine method
+
+    /**
+     * throws an illegal state exception with message unless condition holds
+     */
+    private static void check(boolean condition, String message) throws IllegalStateException {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }// check method
+
+    public static void main(String[] args) {
+        deepRightSpine();
+        System.out.println("all checks passed");
+    }// main method
+}// BestBinarySearchTreeTest class
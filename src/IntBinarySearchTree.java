@@ -0,0 +1,231 @@
+import java.util.Arrays;
+
+/**
+ * a binary search tree just for int keys. there are no node objects: node i
+ * is a slot in parallel int arrays (key[i], left[i], right[i], parent[i]) and
+ * links are just indices, with NIL (-1) for "nobody". nothing is boxed and
+ * nothing is allocated per operation, except when the arrays have to grow.
+ */
+public class IntBinarySearchTree {
+    public static final int NIL = -1; // index meaning "no node"
+    public static final int CAPACITY = 16; // default starting capacity
+
+    private int[] key;
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private int size = 0; // nodes live in slots 0..size-1, the root is slot 0
+    private int height = 0; // counting the root as 1, like BestBinarySearchTree
+
+    /**
+     * builds an empty tree with the default capacity
+     */
+    public IntBinarySearchTree() {
+        this(CAPACITY);
+    }// IntBinarySearchTree constructor
+
+    /**
+     * builds an empty tree with room for capacity keys before it has to grow
+     *
+     * @param capacity
+     */
+    public IntBinarySearchTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        key = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+    }// IntBinarySearchTree constructor
+
+    /**
+     * returns the number of keys in the tree
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }// size method
+
+    /**
+     * returns true if there are no keys in the tree
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }// isEmpty method
+
+    /**
+     * returns the height of the tree, counting the root as 1 (0 when empty).
+     * kept up to date by insert, so it's O(1).
+     *
+     * @return
+     */
+    public int getHeight() {
+        return height;
+    }// getHeight method
+
+    /**
+     * returns the key stored at node
+     *
+     * @param node
+     * @return
+     */
+    public int key(int node) {
+        checkNode(node);
+        return key[node];
+    }// key method
+
+    /**
+     * inserts k at its correct spot in a single walk down, and returns its node.
+     * If k already exists, throw an illegal state exception.
+     *
+     * @param k
+     * @return
+     */
+    public int insert(int k) throws IllegalStateException {
+        if (size == 0) {
+            return newNode(k, NIL, 1); // give it a root if it has none
+        }
+        int walk = 0; // walker will travel to the right placement
+        int depth = 1;
+        while (true) {
+            depth++;
+            if (k == key[walk]) {
+                throw new IllegalStateException();
+            } else if (k < key[walk]) {
+                if (left[walk] == NIL) {
+                    int child = newNode(k, walk, depth); // (may replace the arrays, so link it after)
+                    left[walk] = child; // make it the left child or...
+                    return child;
+                }
+                walk = left[walk]; // move on to the left child.
+            } else {
+                if (right[walk] == NIL) {
+                    int child = newNode(k, walk, depth); // (may replace the arrays, so link it after)
+                    right[walk] = child; // make it the right child or...
+                    return child;
+                }
+                walk = right[walk]; // move on to the right child.
+            }
+        }
+    }// insert method
+
+    /**
+     * returns the node holding k, or NIL if it isn't there
+     *
+     * @param k
+     * @return
+     */
+    public int find(int k) {
+        int walk = (size == 0 ? NIL : 0);
+        while (walk != NIL && key[walk] != k) {
+            walk = (k < key[walk] ? left[walk] : right[walk]);
+        }
+        return walk;
+    }// find method
+
+    /**
+     * returns true if k is in the tree
+     *
+     * @param k
+     * @return
+     */
+    public boolean contains(int k) {
+        return find(k) != NIL;
+    }// contains method
+
+    /**
+     * returns the node with the smallest key (where an in order walk starts),
+     * or NIL if the tree is empty. together with nextInOrder this visits every
+     * key in increasing order without allocating anything:
+     *
+     * <pre>
+     * for (int node = tree.firstInOrder(); node != IntBinarySearchTree.NIL; node = tree.nextInOrder(node))
+     *     use(tree.key(node));
+     * </pre>
+     *
+     * @return
+     */
+    public int firstInOrder() {
+        return (size == 0 ? NIL : leftmost(0));
+    }// firstInOrder method
+
+    /**
+     * returns the node after node in increasing key order, or NIL if node has
+     * the largest key. only follows links, so no stack is needed.
+     *
+     * @param node
+     * @return
+     */
+    public int nextInOrder(int node) {
+        checkNode(node);
+        if (right[node] != NIL) {
+            return leftmost(right[node]); // smallest key of the right subtree
+        }
+        int above = parent[node];
+        while (above != NIL && node == right[above]) { // came up from the right, keep climbing
+            node = above;
+            above = parent[node];
+        }
+        return above;
+    }// nextInOrder method
+
+    /**
+     * returns the keys in increasing order
+     *
+     * @return
+     */
+    public int[] toSortedArray() {
+        int[] sorted = new int[size];
+        int i = 0;
+        for (int node = firstInOrder(); node != NIL; node = nextInOrder(node)) {
+            sorted[i++] = key[node];
+        }
+        return sorted;
+    }// toSortedArray method
+
+    /**
+     * returns the node with the smallest key in node's subtree
+     */
+    private int leftmost(int node) {
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }// leftmost method
+
+    /**
+     * claims the next free slot for k, growing the arrays if they're full
+     */
+    private int newNode(int k, int above, int depth) {
+        if (size == key.length) {
+            grow(2 * key.length); // double the capacity, the same as net.datastructures.ArrayList
+        }
+        key[size] = k;
+        left[size] = NIL;
+        right[size] = NIL;
+        parent[size] = above;
+        height = Math.max(height, depth);
+        return size++;
+    }// newNode method
+
+    /**
+     * copies the node arrays into bigger ones
+     */
+    private void grow(int capacity) {
+        key = Arrays.copyOf(key, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+    }// grow method
+
+    /**
+     * throws an illegal argument exception if node isn't a node of this tree
+     */
+    private void checkNode(int node) throws IllegalArgumentException {
+        if (node < 0 || node >= size) {
+            throw new IllegalArgumentException("not a valid node: " + node);
+        }
+    }// checkNode method
+}// IntBinarySearchTree class
@@ -2,8 +2,8 @@
 Description: Lab 10 
 Author: alex rodriguez 
 Date: 4.28.22
-Bugs: A) if the tree gets too full, the lower subtrees can overlap as 
-width is currently connected to the height of the tree. 
+Bugs: A) (fixed) if the tree got too full, the lower subtrees could overlap as 
+width was connected to the height of the tree. drawing now uses a tidy layout. 
       B) it won't validate your input after the initial build so be careful!
 Reflection: you weren't kidding. for an easy lab, this was the toughest one yet. 
 upside I'm damn comfortable working with trees now. Wish I had started sooner to 
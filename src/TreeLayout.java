@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+
+import net.datastructures.Position;
+
+/**
+ * where every node of a tree goes on the canvas, worked out once so it can be
+ * drawn as many times (or in as many ways) as we like. node i is at
+ * (getX(i), getY(i)) with y counting up from the bottom, like StdDraw, and
+ * getParent(i) is the index of its parent (-1 for the root). parents always
+ * come before their children.
+ */
+public class TreeLayout<E> {
+    private final ArrayList<Position<E>> positions;
+    private final double[] x;
+    private final double[] y;
+    private final int[] parent;
+    private final int width;
+    private final int height;
+    private final int radius;
+
+    /**
+     * wraps up a finished layout
+     *
+     * @param positions the nodes, parents before children
+     * @param x         x coordinate of each node
+     * @param y         y coordinate of each node
+     * @param parent    index of each node's parent, -1 for the root
+     * @param width     width of the canvas
+     * @param height    height of the canvas
+     * @param radius    radius of each circle
+     */
+    public TreeLayout(ArrayList<Position<E>> positions, double[] x, double[] y, int[] parent, int width,
+            int height, int radius) {
+        this.positions = positions;
+        this.x = x;
+        this.y = y;
+        this.parent = parent;
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+    }// TreeLayout constructor
+
+    public int size() {
+        return positions.size();
+    }// size method
+
+    public Position<E> getPosition(int i) {
+        return positions.get(i);
+    }// getPosition method
+
+    public double getX(int i) {
+        return x[i];
+    }// getX method
+
+    public double getY(int i) {
+        return y[i];
+    }// getY method
+
+    public int getParent(int i) {
+        return parent[i];
+    }// getParent method
+
+    public int getWidth() {
+        return width;
+    }// getWidth method
+
+    public int getHeight() {
+        return height;
+    }// getHeight method
+
+    public int getRadius() {
+        return radius;
+    }// getRadius method
+}// TreeLayout class
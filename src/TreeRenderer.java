@@ -0,0 +1,115 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * draws a TreeLayout, either into a StdDraw window or straight into an image.
+ * both ways draw every edge first and then every node on top, in one pass.
+ * the image way never touches StdDraw (which opens a window as soon as it's
+ * loaded), so it works on a machine with no screen.
+ */
+public class TreeRenderer {
+    /**
+     * returns the font for labels in circles of the given radius. radius 20
+     * gets size 16, the same as StdDraw's default.
+     */
+    private static Font fontFor(int radius) {
+        return new Font("SansSerif", Font.PLAIN, Math.max(1, Math.round(0.8f * radius)));
+    }// fontFor method
+
+    /**
+     * draws the layout in the StdDraw window. double buffering is on while
+     * drawing so the window is only repainted once at the end, instead of once
+     * per line/circle/text call.
+     *
+     * @param layout
+     */
+    public static <E> void draw(TreeLayout<E> layout) {
+        StdDraw.setCanvasSize(layout.getWidth(), layout.getHeight());
+        StdDraw.setXscale(0, layout.getWidth());
+        StdDraw.setYscale(0, layout.getHeight());
+        StdDraw.enableDoubleBuffering();
+        StdDraw.setFont(fontFor(layout.getRadius()));
+        StdDraw.setPenColor(StdDraw.BLACK);
+        for (int i = 0; i < layout.size(); i++) { // edges first so the circles cover their ends
+            int p = layout.getParent(i);
+            if (p >= 0) {
+                StdDraw.line(layout.getX(i), layout.getY(i), layout.getX(p), layout.getY(p));
+            }
+        }
+        for (int i = 0; i < layout.size(); i++) {
+            StdDraw.setPenColor(StdDraw.WHITE);
+            StdDraw.filledCircle(layout.getX(i), layout.getY(i), layout.getRadius());
+            StdDraw.setPenColor(StdDraw.BLACK);
+            StdDraw.circle(layout.getX(i), layout.getY(i), layout.getRadius());
+            StdDraw.text(layout.getX(i), layout.getY(i), layout.getPosition(i).getElement().toString());
+        }
+        StdDraw.show(); // one repaint for the whole tree
+        StdDraw.disableDoubleBuffering();
+    }// draw method
+
+    /**
+     * draws the layout into a new image, with no window involved
+     *
+     * @param layout
+     * @return
+     */
+    public static <E> BufferedImage render(TreeLayout<E> layout) {
+        int width = Math.max(layout.getWidth(), 1);
+        int height = Math.max(layout.getHeight(), 1);
+        double r = layout.getRadius();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setStroke(new BasicStroke(1.0f));
+        g.setFont(fontFor(layout.getRadius()));
+        FontMetrics metrics = g.getFontMetrics();
+
+        Line2D.Double line = new Line2D.Double(); // reused for every edge
+        Ellipse2D.Double circle = new Ellipse2D.Double(); // and every node
+        g.setColor(Color.BLACK);
+        for (int i = 0; i < layout.size(); i++) { // edges first so the circles cover their ends
+            int p = layout.getParent(i);
+            if (p >= 0) {
+                line.setLine(layout.getX(i), height - layout.getY(i), layout.getX(p), height - layout.getY(p));
+                g.draw(line);
+            }
+        }
+        for (int i = 0; i < layout.size(); i++) {
+            double x = layout.getX(i);
+            double y = height - layout.getY(i); // images count y down from the top
+            circle.setFrame(x - r, y - r, 2 * r, 2 * r);
+            g.setColor(Color.WHITE);
+            g.fill(circle);
+            g.setColor(Color.BLACK);
+            g.draw(circle);
+            String text = layout.getPosition(i).getElement().toString();
+            g.drawString(text, (float) (x - metrics.stringWidth(text) / 2.0), (float) (y + metrics.getDescent()));
+        }
+        g.dispose();
+        return image;
+    }// render method
+
+    /**
+     * draws the layout into an image and saves it as a PNG
+     *
+     * @param layout
+     * @param filename
+     * @throws IOException if the file can't be written
+     */
+    public static <E> void save(TreeLayout<E> layout, String filename) throws IOException {
+        ImageIO.write(render(layout), "png", new File(filename));
+    }// save method
+}// TreeRenderer class
@@ -0,0 +1,110 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.maps;
+
+import java.util.Random;
+import java.util.function.Supplier;
+import net.datastructures.ChainHashMap;
+import net.datastructures.ConcurrentChainHashMap;
+import net.datastructures.Entry;
+import net.datastructures.Map;
+
+/**
+ * Measures the throughput of maps shared by several threads, doubling the
+ * number of threads from 1 to 32. Every run performs the same total number
+ * of operations, split evenly among the threads; each operation is a get
+ * (80%), put (10%), or remove (10%) of a random key from a fixed range.
+ */
+public class ConcurrentMapExperiment {
+
+  //---------------- nested LockedMap class ----------------
+  /** A ChainHashMap behind a single lock, for comparison. */
+  private static class LockedMap<K,V> implements Map<K,V> {
+    private final ChainHashMap<K,V> map = new ChainHashMap<>();
+    public synchronized int size() { return map.size(); }
+    public synchronized boolean isEmpty() { return map.isEmpty(); }
+    public synchronized V get(K key) { return map.get(key); }
+    public synchronized V put(K key, V value) { return map.put(key, value); }
+    public synchronized V remove(K key) { return map.remove(key); }
+    public synchronized Iterable<K> keySet() { return map.keySet(); }
+    public synchronized Iterable<V> values() { return map.values(); }
+    public synchronized Iterable<Entry<K,V>> entrySet() { return map.entrySet(); }
+  } //----------- end of nested LockedMap class -----------
+
+  /**
+   * Returns the number of operations per millisecond achieved by the given
+   * number of threads sharing a map, which is first filled with half of
+   * the keys in the range.
+   */
+  public static double throughput(Supplier<Map<Integer,Integer>> factory, int threads,
+                                  int range, int totalOps) throws InterruptedException {
+    Map<Integer,Integer> map = factory.get();
+    Integer[] keys = new Integer[range];              // boxed once, so timing excludes it
+    for (int j=0; j < range; j++)
+      keys[j] = j;
+    for (int j=0; j < range; j += 2)
+      map.put(keys[j], j);
+    Thread[] workers = new Thread[threads];
+    int opsEach = totalOps / threads;
+    for (int t=0; t < threads; t++) {
+      final int seed = t;
+      workers[t] = new Thread(() -> {
+        Random rand = new Random(seed);
+        for (int j=0; j < opsEach; j++) {
+          Integer key = keys[rand.nextInt(range)];
+          int op = rand.nextInt(10);
+          if (op == 0)
+            map.put(key, j);
+          else if (op == 1)
+            map.remove(key);
+          else
+            map.get(key);
+        }
+      });
+    }
+    long startTime = System.nanoTime();
+    for (Thread worker : workers)
+      worker.start();
+    for (Thread worker : workers)
+      worker.join();
+    long elapsed = System.nanoTime() - startTime;
+    return (double) opsEach * threads / (elapsed / 1e6);
+  }
+
+  /** Prints the throughput of the given maps for 1, 2, 4, ..., 32 threads. */
+  public static void main(String[] args) throws InterruptedException {
+    int range = 1 << 16;
+    int totalOps = 1 << 23;
+    if (args.length > 0) range = Integer.parseInt(args[0]);
+    if (args.length > 1) totalOps = Integer.parseInt(args[1]);
+    System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+    for (int round=0; round < 2; round++) {           // the first round warms up the JIT
+      System.out.println(round == 0 ? "Warming up..." : "Operations per ms:");
+      for (int threads=1; threads <= 32; threads *= 2) {
+        double locked = throughput(LockedMap::new, threads, range, totalOps);
+        double striped = throughput(ConcurrentChainHashMap::new, threads, range, totalOps);
+        if (round > 0)
+          System.out.println(String.format("threads: %2d  locked ChainHashMap %8.0f  ConcurrentChainHashMap %8.0f",
+              threads, locked, striped));
+      }
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.maps;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+import net.datastructures.AbstractHashMap;
+import net.datastructures.ChainHashMap;
+import net.datastructures.Map;
+import net.datastructures.MaskedProbeHashMap;
+import net.datastructures.ProbeHashMap;
+
+/**
+ * Provides an empirical comparison of the hash map implementations, timing
+ * put, get (of present and of absent keys), and remove for each of them,
+ * doubling the number of entries each trial.
+ */
+public class HashMapExperiment {
+
+  /** Returns n distinct random keys, followed by n more distinct keys. */
+  public static Integer[] randomKeys(int n, Random rand) {
+    java.util.HashSet<Integer> seen = new java.util.HashSet<>();
+    Integer[] keys = new Integer[2 * n];
+    for (int j=0; j < keys.length; j++) {
+      int k;
+      do { k = rand.nextInt(); } while (!seen.add(k));
+      keys[j] = k;
+    }
+    return keys;
+  }
+
+  /**
+   * Times the basic operations of maps made by the given factory, doubling
+   * the problem size each trial, beginning with the given start value.
+   */
+  public static void timeMaps(String name, Supplier<Map<Integer,Integer>> factory,
+                              int trials, int start) {
+    System.out.println("Testing " + name + "...");
+    Random rand = new Random(start);                    // same keys for every map
+    int n = start;
+    for (int t=0; t < trials; t++) {
+      Integer[] keys = randomKeys(n, rand);             // keys[n..2n-1] are never put
+      Map<Integer,Integer> map = factory.get();
+      long startTime = System.currentTimeMillis();
+      for (int j=0; j < n; j++)
+        map.put(keys[j], j);
+      long putTime = System.currentTimeMillis();
+      for (int j=0; j < n; j++)
+        map.get(keys[j]);
+      long getTime = System.currentTimeMillis();
+      for (int j=n; j < 2 * n; j++)
+        map.get(keys[j]);
+      long missTime = System.currentTimeMillis();
+      for (int j=0; j < n; j++)
+        map.remove(keys[j]);
+      long endTime = System.currentTimeMillis();
+      System.out.println(String.format("n: %9d put %6d ms, get %6d ms, miss %6d ms, remove %6d ms",
+          n, putTime - startTime, getTime - putTime, missTime - getTime, endTime - missTime));
+      n *= 2;                                           // double the problem size
+    }
+  }
+
+  /**
+   * Puts n random keys into a map made by the given factory, timing each
+   * put on its own, and reports the median, 99th percentile, 99.9th
+   * percentile and worst put times, with and without incremental resizing.
+   */
+  public static void putLatency(String name, Supplier<? extends AbstractHashMap<Integer,Integer>> factory,
+                                int n) {
+    System.out.println("Testing put latency of " + name + "...");
+    Integer[] keys = randomKeys(n, new Random(n));
+    long[] times = new long[n];
+    for (boolean incremental : new boolean[] {false, true}) {
+      AbstractHashMap<Integer,Integer> map = factory.get();
+      map.setIncrementalResize(incremental);
+      for (int j=0; j < n; j++) {
+        long startTime = System.nanoTime();
+        map.put(keys[j], j);
+        times[j] = System.nanoTime() - startTime;
+      }
+      Arrays.sort(times);
+      System.out.println(String.format("%-11s p50 %8d ns, p99 %8d ns, p99.9 %8d ns, max %10d ns",
+          (incremental ? "incremental" : "all at once"), times[n / 2], times[n - n / 100],
+          times[n - n / 1000], times[n - 1]));
+    }
+  }
+
+  /** Returns the number of bytes in use on the heap, after collecting garbage. */
+  static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE, last;
+    do {                                              // until nothing more is freed
+      last = used;
+      System.gc();
+      used = runtime.totalMemory() - runtime.freeMemory();
+    } while (used < last);
+    return used;
+  }
+
+  /**
+   * Reports the heap used by a map made by the given factory, per entry,
+   * once it holds the first n of the given keys and again after 90% of
+   * them are removed. All values are the same object, so only the map
+   * itself is counted. The heap figures the JVM reports can be off by a
+   * few megabytes, so the results are only rough unless n is large.
+   */
+  public static void footprint(String name, Supplier<? extends Map<Integer,Integer>> factory,
+                               Integer[] keys, int n) {
+    Integer value = 0;
+    long before = usedMemory();
+    Map<Integer,Integer> map = factory.get();
+    for (int j=0; j < n; j++)
+      map.put(keys[j], value);
+    long full = usedMemory() - before;
+    for (int j=0; j < n - n / 10; j++)
+      map.remove(keys[j]);
+    long emptied = usedMemory() - before;
+    if (map.get(keys[n - 1]) != value)               // (also keeps keys and map alive until here)
+      throw new IllegalStateException("lost an entry");
+    System.out.println(String.format("%-26s %6.1f bytes/entry full, %6.1f bytes/entry after removing 90%%",
+        name, (double) full / n, (double) emptied / map.size()));
+  }
+
+  /**
+   * Times putting n keys into a ProbeHashMap that starts small, and into one
+   * made for n entries up front (which never resizes).
+   */
+  public static void bulkLoad(int n) {
+    System.out.println("Testing presized ProbeHashMap...");
+    Integer[] keys = randomKeys(n, new Random(n));
+    for (boolean presized : new boolean[] {false, true}) {
+      long startTime = System.currentTimeMillis();
+      ProbeHashMap<Integer,Integer> map = (presized ? ProbeHashMap.withExpectedSize(n, 0.5)
+                                                    : new ProbeHashMap<>());
+      for (int j=0; j < n; j++)
+        map.put(keys[j], j);
+      long elapsed = System.currentTimeMillis() - startTime;
+      System.out.println(String.format("n: %9d took %12d milliseconds%s", n, elapsed,
+          (presized ? " (presized)" : "")));
+    }
+  }
+
+  /**
+   * Keeps n entries in a ProbeHashMap while repeatedly removing one and
+   * putting a new one, reporting the probe lengths and the time for n gets
+   * after every n such replacements. The size never changes, so the table
+   * is never rebuilt by a resize.
+   */
+  public static void churn(int n, int rounds) {
+    System.out.println("Testing ProbeHashMap under churn...");
+    Random rand = new Random(n);
+    ProbeHashMap<Integer,Integer> map = new ProbeHashMap<>();
+    Integer[] live = new Integer[n];
+    for (int j=0; j < n; j++) {
+      do { live[j] = rand.nextInt(); } while (map.get(live[j]) != null);
+      map.put(live[j], j);
+    }
+    for (int t=0; t <= rounds; t++) {
+      long startTime = System.currentTimeMillis();
+      for (int j=0; j < n; j++)
+        map.get(live[j]);
+      long elapsed = System.currentTimeMillis() - startTime;
+      System.out.println(String.format("churned: %9d probes avg %5.2f max %4d, get %6d ms",
+          (long) t * n, map.averageProbeLength(), map.maxProbeLength(), elapsed));
+      for (int j=0; j < n; j++) {                       // replace one random entry, n times
+        int victim = rand.nextInt(n);
+        map.remove(live[victim]);
+        do { live[victim] = rand.nextInt(); } while (map.get(live[victim]) != null);
+        map.put(live[victim], victim);
+      }
+    }
+  }
+
+  /**
+   * Times loading n entries into a map made by the given factory, looking
+   * them all up, and removing them, once key by key and once in batches of
+   * the given size through putAll, getAll, and removeAll.
+   */
+  public static void batches(String name, Supplier<? extends AbstractHashMap<Integer,Integer>> factory,
+                             int n, int batchSize) {
+    System.out.println("Testing batches of " + batchSize + " on " + name + "...");
+    Integer[] keys = randomKeys(n, new Random(n));
+    Integer[] values = Arrays.copyOf(keys, n);
+    Integer[] results = new Integer[batchSize];
+    for (boolean batched : new boolean[] {false, true}) {
+      AbstractHashMap<Integer,Integer> map = factory.get();
+      long startTime = System.currentTimeMillis();
+      for (int j=0; j < n; j += batchSize) {
+        int end = Math.min(n, j + batchSize);
+        if (batched)
+          map.putAll(Arrays.copyOfRange(keys, j, end), Arrays.copyOfRange(values, j, end));
+        else
+          for (int i=j; i < end; i++)
+            map.put(keys[i], values[i]);
+      }
+      long putTime = System.currentTimeMillis();
+      for (int j=0; j < n; j += batchSize) {
+        int end = Math.min(n, j + batchSize);
+        if (batched)
+          map.getAll(Arrays.copyOfRange(keys, j, end), results);
+        else
+          for (int i=j; i < end; i++)
+            results[i - j] = map.get(keys[i]);
+      }
+      long getTime = System.currentTimeMillis();
+      for (int j=0; j < n; j += batchSize) {
+        int end = Math.min(n, j + batchSize);
+        if (batched)
+          map.removeAll(Arrays.copyOfRange(keys, j, end));
+        else
+          for (int i=j; i < end; i++)
+            map.remove(keys[i]);
+      }
+      long endTime = System.currentTimeMillis();
+      System.out.println(String.format("%-7s n: %9d put %6d ms, get %6d ms, remove %6d ms",
+          (batched ? "batched" : "per key"), n, putTime - startTime, getTime - putTime, endTime - getTime));
+    }
+  }
+
+  /**
+   * Returns 2^bits distinct strings that all have the same hashCode, made
+   * of the two-character blocks "Aa" and "BB" (which hash alike).
+   */
+  public static String[] collidingKeys(int bits) {
+    String[] keys = new String[1 << bits];
+    for (int j=0; j < keys.length; j++) {
+      StringBuilder sb = new StringBuilder();
+      for (int b=0; b < bits; b++)
+        sb.append(((j >> b) & 1) == 0 ? "Aa" : "BB");
+      keys[j] = sb.toString();
+    }
+    return keys;
+  }
+
+  /**
+   * Times putting and getting keys that all share one hash code, doubling
+   * their number each trial. Every key lands in the same bucket, where
+   * ChainHashMap keeps them in a tree and ProbeHashMap probes past them all.
+   */
+  public static void collisions(int trials, int startBits) {
+    System.out.println("Testing colliding String keys...");
+    for (int bits=startBits; bits < startBits + trials; bits++) {
+      String[] keys = collidingKeys(bits);
+      StringBuilder line = new StringBuilder(String.format("n: %9d", keys.length));
+      for (Map<String,Integer> map : Arrays.<Map<String,Integer>>asList(
+               new ChainHashMap<>(), new ProbeHashMap<>())) {
+        long startTime = System.currentTimeMillis();
+        for (int j=0; j < keys.length; j++)
+          map.put(keys[j], j);
+        for (int j=0; j < keys.length; j++)
+          map.get(keys[j]);
+        long elapsed = System.currentTimeMillis() - startTime;
+        line.append(String.format("  %s %6d ms", map.getClass().getSimpleName(), elapsed));
+      }
+      System.out.println(line);
+    }
+  }
+
+  /**
+   * Tests each of the hash maps in turn. The first command line argument
+   * can be used to change the number of trials, and the second to adjust
+   * the start value.
+   */
+  public static void main(String[] args) {
+    int n = 100000;                                     // starting value
+    int trials = 6;
+    try {
+      if (args.length > 0)
+        trials = Integer.parseInt(args[0]);
+      if (args.length > 1)
+        n = Integer.parseInt(args[1]);
+    } catch (NumberFormatException e) { }
+
+    timeMaps("MaskedProbeHashMap", MaskedProbeHashMap::new, trials, n);
+    timeMaps("ProbeHashMap", ProbeHashMap::new, trials, n);
+    timeMaps("ChainHashMap", ChainHashMap::new, trials, n);
+    churn(n, trials);
+    collisions(trials, 10);
+    putLatency("ProbeHashMap", ProbeHashMap::new, 20 * n);
+    putLatency("ChainHashMap", ChainHashMap::new, 20 * n);
+    putLatency("MaskedProbeHashMap", MaskedProbeHashMap::new, 20 * n);
+    bulkLoad(20 * n);
+    batches("ProbeHashMap", ProbeHashMap::new, 20 * n, 4096);
+    batches("ChainHashMap", ChainHashMap::new, 20 * n, 4096);
+    batches("MaskedProbeHashMap", MaskedProbeHashMap::new, 20 * n, 4096);
+
+    System.out.println("Testing memory footprint...");
+    Integer[] keys = randomKeys(10 * n, new Random(n));
+    for (double loadFactor : new double[] {0.25, 0.5, 0.75, 0.9}) {
+      footprint("ProbeHashMap " + loadFactor,
+          () -> new ProbeHashMap<Integer,Integer>(17, 109345121, loadFactor), keys, 10 * n);
+      footprint("MaskedProbeHashMap " + loadFactor,
+          () -> new MaskedProbeHashMap<Integer,Integer>(16, loadFactor), keys, 10 * n);
+    }
+    for (double loadFactor : new double[] {0.5, 1, 2, 4})
+      footprint("ChainHashMap " + loadFactor,
+          () -> new ChainHashMap<Integer,Integer>(17, 109345121, loadFactor), keys, 10 * n);
+  }
+}
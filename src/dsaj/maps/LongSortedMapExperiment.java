@@ -0,0 +1,134 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.maps;
+
+import java.util.Arrays;
+import java.util.Random;
+import net.datastructures.LongSortedTableMap;
+import net.datastructures.SortedTableMap;
+
+/**
+ * Compares LongSortedTableMap, searching by binary search and by
+ * interpolation, with a SortedTableMap<Long,Integer> holding the same
+ * timestamp-like keys (increasing, with random gaps between them), doubling
+ * the number of entries each trial. Each map is built from the keys in
+ * order, then every key is looked up in random order, and then a batch of
+ * late keys (1% of n, scattered among the others) is merged in, which the
+ * primitive map does with one putAllSorted call.
+ */
+public class LongSortedMapExperiment {
+
+  /** Returns n increasing keys with random gaps of up to 2000 between them. */
+  private static long[] timestamps(int n, Random rand) {
+    long[] keys = new long[n];
+    long t = 1_500_000_000_000L;                        // milliseconds, say
+    for (int j=0; j < n; j++) {
+      t += 1 + rand.nextInt(2000);
+      keys[j] = t;
+    }
+    return keys;
+  }
+
+  /** Returns the keys in random order (as Longs, so the boxing is not timed). */
+  private static Long[] shuffled(long[] keys, Random rand) {
+    Long[] order = new Long[keys.length];
+    for (int j=0; j < keys.length; j++)
+      order[j] = keys[j];
+    for (int j=order.length-1; j > 0; j--) {            // Fisher-Yates shuffle
+      int k = rand.nextInt(j + 1);
+      Long temp = order[j];
+      order[j] = order[k];
+      order[k] = temp;
+    }
+    return order;
+  }
+
+  /** Times building, looking up, and merging into a LongSortedTableMap. */
+  private static void primitive(String name, boolean interpolate, long[] keys, Long[] lookups, long[] late) {
+    int n = keys.length;
+    Integer[] values = new Integer[n];
+    Arrays.fill(values, 1);
+    long startTime = System.currentTimeMillis();
+    LongSortedTableMap<Integer> map = new LongSortedTableMap<>(interpolate);
+    map.putAllSorted(keys, values);
+    long buildTime = System.currentTimeMillis();
+    long total = 0;
+    for (Long key : lookups)
+      total += map.get(key);
+    long getTime = System.currentTimeMillis();
+    Integer[] lateValues = new Integer[late.length];
+    Arrays.fill(lateValues, 1);
+    map.putAllSorted(late, lateValues);
+    long endTime = System.currentTimeMillis();
+    if (total != n || map.size() != n + late.length) throw new IllegalStateException("lost an entry");
+    System.out.println(String.format("n: %9d %-22s build %6d ms, get %6d ms, merge %6d ms",
+        n, name, buildTime - startTime, getTime - buildTime, endTime - getTime));
+  }
+
+  /** Times the same operations on a SortedTableMap, one put at a time. */
+  private static void boxed(long[] keys, Long[] lookups, long[] late) {
+    int n = keys.length;
+    long startTime = System.currentTimeMillis();
+    SortedTableMap<Long,Integer> map = new SortedTableMap<>();
+    for (int j=0; j < n; j++)
+      map.put(keys[j], 1);
+    long buildTime = System.currentTimeMillis();
+    long total = 0;
+    for (Long key : lookups)
+      total += map.get(key);
+    long getTime = System.currentTimeMillis();
+    for (long key : late)
+      map.put(key, 1);
+    long endTime = System.currentTimeMillis();
+    if (total != n || map.size() != n + late.length) throw new IllegalStateException("lost an entry");
+    System.out.println(String.format("n: %9d %-22s build %6d ms, get %6d ms, merge %6d ms",
+        n, "SortedTableMap<Long,..>", buildTime - startTime, getTime - buildTime, endTime - getTime));
+  }
+
+  /**
+   * Runs the comparison. The first command line argument can be used to
+   * change the number of trials, and the second to adjust the start value.
+   */
+  public static void main(String[] args) {
+    int n = 1000000;                                    // starting value
+    int trials = 4;
+    try {
+      if (args.length > 0)
+        trials = Integer.parseInt(args[0]);
+      if (args.length > 1)
+        n = Integer.parseInt(args[1]);
+    } catch (NumberFormatException e) { }
+
+    Random rand = new Random(n);
+    for (int t=0; t < trials; t++, n *= 2) {
+      long[] keys = timestamps(n, rand);
+      Long[] lookups = shuffled(keys, rand);
+      long[] late = new long[n / 100];                  // just after random keys
+      for (int j=0; j < late.length; j++)
+        late[j] = keys[rand.nextInt(n)] + 1;
+      Arrays.sort(late);                                // then drop repeats and existing keys
+      late = Arrays.stream(late).distinct().filter(k -> Arrays.binarySearch(keys, k) < 0).toArray();
+      boxed(keys, lookups, late);
+      primitive("LongSortedTable binary", false, keys, lookups, late);
+      primitive("LongSortedTable interp", true, keys, lookups, late);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.maps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import net.datastructures.MappedHashMap;
+import net.datastructures.ProbeHashMap;
+
+/**
+ * Compares starting up with a MappedHashMap, which is simply reopened, to
+ * rebuilding a ProbeHashMap with the same entries, doubling the number of
+ * entries each trial. Also times gets on the reopened map.
+ */
+public class MappedMapExperiment {
+
+  /** Times each way of getting a map with n entries ready for use. */
+  public static void startup(int n, Path file) throws IOException {
+    Random rand = new Random(n);
+    long[] keys = new long[n];
+    for (int j=0; j < n; j++)
+      keys[j] = rand.nextLong();
+
+    long startTime = System.currentTimeMillis();
+    ProbeHashMap<Long,Long> heap = ProbeHashMap.withExpectedSize(n, 0.5);
+    for (int j=0; j < n; j++)
+      heap.put(keys[j], (long) j);
+    long rebuildTime = System.currentTimeMillis() - startTime;
+    heap = null;
+
+    Files.deleteIfExists(file);
+    try (MappedHashMap<Long,Long> map = new MappedHashMap<>(file, MappedHashMap.LONG,
+                                                            MappedHashMap.LONG, n)) {
+      for (int j=0; j < n; j++)
+        map.put(keys[j], (long) j);
+    }
+
+    startTime = System.nanoTime();
+    try (MappedHashMap<Long,Long> map = new MappedHashMap<>(file, MappedHashMap.LONG,
+                                                            MappedHashMap.LONG)) {
+      long openTime = System.nanoTime() - startTime;
+      startTime = System.currentTimeMillis();
+      for (int j=0; j < n; j++)
+        if (map.get(keys[j]) != j)
+          throw new IllegalStateException("lost an entry");
+      long getTime = System.currentTimeMillis() - startTime;
+      System.out.println(String.format("n: %9d rebuild ProbeHashMap %6d ms, reopen MappedHashMap %8.3f ms, then get %6d ms",
+          n, rebuildTime, openTime / 1e6, getTime));
+    }
+  }
+
+  /**
+   * Runs the comparison. The first command line argument can be used to
+   * change the number of trials, and the second to adjust the start value.
+   */
+  public static void main(String[] args) throws IOException {
+    int n = 100000;                                     // starting value
+    int trials = 6;
+    try {
+      if (args.length > 0)
+        trials = Integer.parseInt(args[0]);
+      if (args.length > 1)
+        n = Integer.parseInt(args[1]);
+    } catch (NumberFormatException e) { }
+
+    Path file = Files.createTempFile("mapped", ".map");
+    try {
+      for (int t=0; t < trials; t++, n *= 2)
+        startup(n, file);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
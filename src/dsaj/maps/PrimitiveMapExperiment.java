@@ -0,0 +1,123 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.maps;
+
+import java.util.Random;
+import net.datastructures.LongLongHashMap;
+import net.datastructures.ProbeHashMap;
+
+/**
+ * Compares LongLongHashMap with a ProbeHashMap<Long,Long> holding the same
+ * entries: the heap used per entry (counting the boxed keys and values,
+ * which the generic map cannot do without), and the time to put, get, and
+ * sum up all entries, doubling the number of entries each trial.
+ */
+public class PrimitiveMapExperiment {
+
+  /** Returns n distinct random nonzero longs. */
+  private static long[] randomLongs(int n, Random rand) {
+    LongLongHashMap seen = new LongLongHashMap(n);
+    long[] keys = new long[n];
+    for (int j=0; j < n; j++) {
+      do { keys[j] = rand.nextLong(); } while (keys[j] == 0 || !seen.put(keys[j], j));
+    }
+    return keys;
+  }
+
+  /** Reports the heap used per entry by both maps when holding the given keys. */
+  public static void footprint(long[] keys) {
+    int n = keys.length;
+    long before = HashMapExperiment.usedMemory();
+    LongLongHashMap primitive = new LongLongHashMap();
+    for (int j=0; j < n; j++)
+      primitive.put(keys[j], keys[j] + 1);
+    long primitiveBytes = HashMapExperiment.usedMemory() - before;
+    if (primitive.size() != n) throw new IllegalStateException("lost an entry");
+    primitive = null;
+
+    before = HashMapExperiment.usedMemory();
+    ProbeHashMap<Long,Long> boxed = new ProbeHashMap<>();
+    for (int j=0; j < n; j++)
+      boxed.put(keys[j], keys[j] + 1);           // boxes a new key and value each time
+    long boxedBytes = HashMapExperiment.usedMemory() - before;
+    if (boxed.size() != n) throw new IllegalStateException("lost an entry");
+    System.out.println(String.format("n: %9d LongLongHashMap %6.1f bytes/entry, ProbeHashMap<Long,Long> %6.1f bytes/entry",
+        n, (double) primitiveBytes / n, (double) boxedBytes / n));
+  }
+
+  /** Times put, get, and a full iteration on both maps. */
+  public static void throughput(long[] keys) {
+    int n = keys.length;
+    long startTime = System.currentTimeMillis();
+    LongLongHashMap primitive = new LongLongHashMap();
+    for (int j=0; j < n; j++)
+      primitive.put(keys[j], j);
+    long putTime = System.currentTimeMillis();
+    long total = 0;
+    for (int j=0; j < n; j++)
+      total += primitive.get(keys[j], 0);
+    long getTime = System.currentTimeMillis();
+    for (int s = primitive.firstSlot(); s != LongLongHashMap.END; s = primitive.nextSlot(s))
+      total -= primitive.valueAt(s);
+    long endTime = System.currentTimeMillis();
+    if (total != 0) throw new IllegalStateException("wrong sum");
+    System.out.println(String.format("n: %9d LongLongHashMap         put %6d ms, get %6d ms, iterate %6d ms",
+        n, putTime - startTime, getTime - putTime, endTime - getTime));
+
+    startTime = System.currentTimeMillis();
+    ProbeHashMap<Long,Long> boxed = new ProbeHashMap<>();
+    for (int j=0; j < n; j++)
+      boxed.put(keys[j], (long) j);
+    putTime = System.currentTimeMillis();
+    for (int j=0; j < n; j++)
+      total += boxed.get(keys[j]);
+    getTime = System.currentTimeMillis();
+    for (Long value : boxed.values())
+      total -= value;
+    endTime = System.currentTimeMillis();
+    if (total != 0) throw new IllegalStateException("wrong sum");
+    System.out.println(String.format("n: %9d ProbeHashMap<Long,Long> put %6d ms, get %6d ms, iterate %6d ms",
+        n, putTime - startTime, getTime - putTime, endTime - getTime));
+  }
+
+  /**
+   * Runs both comparisons. The first command line argument can be used to
+   * change the number of trials, and the second to adjust the start value.
+   */
+  public static void main(String[] args) {
+    int n = 100000;                                     // starting value
+    int trials = 6;
+    try {
+      if (args.length > 0)
+        trials = Integer.parseInt(args[0]);
+      if (args.length > 1)
+        n = Integer.parseInt(args[1]);
+    } catch (NumberFormatException e) { }
+
+    Random rand = new Random(n);
+    System.out.println("Testing throughput...");
+    for (int t=0, m=n; t < trials; t++, m *= 2)
+      throughput(randomLongs(m, rand));
+    System.out.println("Testing memory footprint...");
+    for (int t=0, m=n; t < trials; t++, m *= 2)
+      footprint(randomLongs(m, rand));
+  }
+}
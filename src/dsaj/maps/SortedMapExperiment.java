@@ -0,0 +1,127 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.maps;
+
+import java.util.Random;
+import net.datastructures.BPlusTreeMap;
+import net.datastructures.Entry;
+import net.datastructures.RBTreeMap;
+import net.datastructures.SortedMap;
+import net.datastructures.SortedTableMap;
+
+/**
+ * Compares BPlusTreeMap, RBTreeMap, and SortedTableMap on the same random
+ * keys, doubling the number of entries each trial: the time to put them
+ * all in random order, to get each of them, and to scan short and long
+ * subMap ranges.
+ * The B+ tree is also built with bulkLoad from the keys in sorted order.
+ *
+ * The default trials end at 10 million entries, for which the red-black
+ * tree needs about 2GB of heap (run with -Xmx3g or so).
+ */
+public class SortedMapExperiment {
+
+  /** Number of short subMap ranges scanned in each trial. */
+  public static final int SHORT_RANGES = 10000;
+
+  /** Returns n distinct random Integers, in random order. */
+  private static Integer[] randomKeys(int n, Random rand) {
+    Integer[] keys = new Integer[n];
+    for (int j=0; j < n; j++)
+      keys[j] = 2 * j;                                 // even, so odd keys can start ranges
+    for (int j=n-1; j > 0; j--) {                      // Fisher-Yates shuffle
+      int k = rand.nextInt(j + 1);
+      Integer temp = keys[j];
+      keys[j] = keys[k];
+      keys[k] = temp;
+    }
+    return keys;
+  }
+
+  /** Times put, get, and subMap on the given map, printing a line labeled with name. */
+  private static void time(String name, SortedMap<Integer,Integer> map, Integer[] keys, Random rand) {
+    int n = keys.length;
+    long startTime = System.currentTimeMillis();
+    for (int j=0; j < n; j++)
+      map.put(keys[j], j);
+    long putTime = System.currentTimeMillis();
+    report(name, map, keys, rand, startTime, putTime);
+  }
+
+  /** Times get and subMap on a map already holding the keys, given the times taken to build it. */
+  private static void report(String name, SortedMap<Integer,Integer> map, Integer[] keys,
+                             Random rand, long startTime, long putTime) {
+    int n = keys.length;
+    long total = 0;
+    for (int j=0; j < n; j++)
+      total += map.get(keys[j]);
+    long getTime = System.currentTimeMillis();
+    long scanned = 0;
+    Random ranges = new Random(rand.nextLong());
+    for (int j=0; j < SHORT_RANGES; j++) {             // many short ranges of about 100 entries
+      int from = ranges.nextInt(2 * n);
+      for (Entry<Integer,Integer> e : map.subMap(from, from + 200))
+        scanned++;
+    }
+    long shortTime = System.currentTimeMillis();
+    for (Entry<Integer,Integer> e : map.subMap(-1, 2 * n))   // one range of everything
+      total -= e.getValue();
+    long endTime = System.currentTimeMillis();
+    if (total != 0) throw new IllegalStateException("wrong sum");
+    System.out.println(String.format("n: %9d %-12s put %6d ms, get %6d ms, short subMaps %6d ms (%d entries), full subMap %6d ms",
+        n, name, putTime - startTime, getTime - putTime, shortTime - getTime, scanned, endTime - shortTime));
+  }
+
+  /**
+   * Runs the comparison. The first command line argument can be used to
+   * change the number of trials, and the second to adjust the start value.
+   */
+  public static void main(String[] args) {
+    int n = 1250000;                                    // starting value
+    int trials = 4;
+    try {
+      if (args.length > 0)
+        trials = Integer.parseInt(args[0]);
+      if (args.length > 1)
+        n = Integer.parseInt(args[1]);
+    } catch (NumberFormatException e) { }
+
+    Random rand = new Random(n);
+    for (int t=0; t < trials; t++, n *= 2) {
+      Integer[] keys = randomKeys(n, rand);
+      time("RBTreeMap", new RBTreeMap<>(), keys, rand);
+      time("BPlusTreeMap", new BPlusTreeMap<>(), keys, rand);
+      time("SortedTable", new SortedTableMap<>(), keys, rand);
+
+      Integer[] sorted = new Integer[n], values = new Integer[n];
+      for (int j=0; j < n; j++) {
+        sorted[keys[j] / 2] = keys[j];
+        values[keys[j] / 2] = j;
+      }
+      long startTime = System.currentTimeMillis();
+      BPlusTreeMap<Integer,Integer> loaded = new BPlusTreeMap<>();
+      loaded.bulkLoad(sorted, values);
+      long putTime = System.currentTimeMillis();
+      sorted = values = null;
+      report("bulkLoad", loaded, keys, rand, startTime, putTime);
+    }
+  }
+}
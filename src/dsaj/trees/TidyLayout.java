@@ -0,0 +1,207 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dsaj.trees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import net.datastructures.BinaryTree;
+import net.datastructures.Position;
+
+/**
+ * Computes a tidy drawing of a binary tree in O(n) time, following the
+ * Reingold-Tilford algorithm. Unlike the inorder layout of
+ * TraversalExamples.layout, which gives every node its own column, each
+ * parent is centered above its children and subtrees are pushed only as
+ * close together as their contours allow, so no two nodes on a level are
+ * ever less than one unit apart.
+ *
+ * TraversalExamples.layout is not used as a first pass: its columns are
+ * inorder ranks, which say nothing about how far apart two subtrees must
+ * sit, so every offset here would be computed afresh anyway. It also
+ * writes coordinates into elements that implement Geometric, where this
+ * class works on any element type, and it recurses once per level.
+ *
+ * Positions are numbered in breadth-first order (so a parent always comes
+ * before its children) and coordinates are kept in primitive arrays:
+ * position i is drawn at (getX(i), getY(i)), where y is the depth.
+ * Nothing is recursive, so degenerate trees of any depth are fine.
+ */
+public class TidyLayout<E> {
+
+  /** Minimum horizontal distance between two positions on the same level. */
+  public static final double SEPARATION = 1.0;
+
+  private ArrayList<Position<E>> positions;  // positions in breadth-first order
+  private int[] parent;                      // index of parent (-1 for the root)
+  private int[] left, right;                 // index of children (-1 if none)
+  private double[] x;                        // final x-coordinates, smallest is 0
+  private int[] y;                           // depth of each position
+  private double width = 0;                  // largest x-coordinate
+  private int depth = 0;                     // largest y-coordinate
+
+  /** Computes the layout of the given tree. */
+  public TidyLayout(BinaryTree<E> T) {
+    int n = T.size();
+    positions = new ArrayList<>(n);
+    parent = new int[n];
+    left = new int[n];
+    right = new int[n];
+    x = new double[n];
+    y = new int[n];
+    if (n == 0) return;
+    number(T);
+    double[] offset = new double[n];         // x-coordinate relative to the parent
+    placeSubtrees(offset);
+    for (int i = 1; i < n; i++) {            // parents come first, so this is one pass
+      x[i] = x[parent[i]] + offset[i];
+      y[i] = y[parent[i]] + 1;
+    }
+    double min = Arrays.stream(x).min().getAsDouble();
+    for (int i = 0; i < n; i++) {
+      x[i] -= min;                           // shift so that the leftmost position is at 0
+      width = Math.max(width, x[i]);
+      depth = Math.max(depth, y[i]);
+    }
+  }
+
+  /** Numbers the positions of T in breadth-first order, recording the links. */
+  private void number(BinaryTree<E> T) {
+    positions.add(T.root());
+    parent[0] = -1;
+    for (int i = 0; i < positions.size(); i++) {   // the list doubles as the queue
+      Position<E> p = positions.get(i);
+      left[i] = addChild(T.left(p), i);
+      right[i] = addChild(T.right(p), i);
+    }
+  }
+
+  private int addChild(Position<E> c, int p) {
+    if (c == null) return -1;
+    parent[positions.size()] = p;
+    positions.add(c);
+    return positions.size() - 1;
+  }
+
+  /**
+   * Sets offset[c] for every non-root c, visiting positions bottom-up.
+   * Each subtree records its lowest-leftmost and lowest-rightmost
+   * positions, and the leaf at the bottom of the shorter side of two
+   * subtrees is threaded to the next position on the longer side's
+   * contour, so contours can be followed in time proportional to the
+   * height of the shorter subtree (which totals O(n) over the tree).
+   */
+  private void placeSubtrees(double[] offset) {
+    int n = positions.size();
+    int[] thread = new int[n];               // contour successor of a leaf (-1 if none)
+    double[] threadOffset = new double[n];   // x of thread target relative to the leaf
+    int[] lmost = new int[n], rmost = new int[n];      // extreme positions on lowest level
+    double[] lmostX = new double[n], rmostX = new double[n];  // their x relative to subtree root
+    int[] height = new int[n];
+    Arrays.fill(thread, -1);
+    for (int v = n - 1; v >= 0; v--) {       // reverse breadth-first: children before parents
+      int L = left[v], R = right[v];
+      if (L < 0 && R < 0) {                  // a leaf is its own extremes
+        lmost[v] = rmost[v] = v;
+        continue;
+      }
+      if (L < 0 || R < 0) {                  // one child goes half a unit to its own side
+        int c = (L >= 0 ? L : R);
+        offset[c] = (L >= 0 ? -SEPARATION : SEPARATION) / 2;
+        lmost[v] = lmost[c];
+        lmostX[v] = lmostX[c] + offset[c];
+        rmost[v] = rmost[c];
+        rmostX[v] = rmostX[c] + offset[c];
+        height[v] = height[c] + 1;
+        continue;
+      }
+      // walk down the right contour of L and the left contour of R together
+      double leftX = 0, rightX = 0;          // cursor positions relative to L and R
+      double rootSep = SEPARATION;           // distance between L and R
+      int cl = L, cr = R;
+      while (true) {
+        double gap = rootSep + rightX - leftX;
+        if (gap < SEPARATION) rootSep += SEPARATION - gap;   // push subtrees apart
+        int nl = contourNext(cl, right, left, thread), nr = contourNext(cr, left, right, thread);
+        if (nl < 0 || nr < 0) break;
+        leftX += contourStep(cl, nl, offset, threadOffset);
+        rightX += contourStep(cr, nr, offset, threadOffset);
+        cl = nl;
+        cr = nr;
+      }
+      double offL = -rootSep / 2, offR = rootSep / 2;
+      offset[L] = offL;
+      offset[R] = offR;
+      int nl = contourNext(cl, right, left, thread), nr = contourNext(cr, left, right, thread);
+      if (nl >= 0) {                         // L is taller: R's right contour continues into L
+        double target = offL + leftX + contourStep(cl, nl, offset, threadOffset);
+        thread[rmost[R]] = nl;
+        threadOffset[rmost[R]] = target - (offR + rmostX[R]);
+      } else if (nr >= 0) {                  // R is taller: L's left contour continues into R
+        double target = offR + rightX + contourStep(cr, nr, offset, threadOffset);
+        thread[lmost[L]] = nr;
+        threadOffset[lmost[L]] = target - (offL + lmostX[L]);
+      }
+      int lowLeft = (height[L] >= height[R] ? L : R);    // whose lowest level is lowest
+      int lowRight = (height[R] >= height[L] ? R : L);
+      lmost[v] = lmost[lowLeft];
+      lmostX[v] = lmostX[lowLeft] + offset[lowLeft];
+      rmost[v] = rmost[lowRight];
+      rmostX[v] = rmostX[lowRight] + offset[lowRight];
+      height[v] = Math.max(height[L], height[R]) + 1;
+    }
+  }
+
+  /**
+   * Returns the next position below c on a contour: the child on the near
+   * side if any, else the other child, else c's thread (-1 if none).
+   */
+  private static int contourNext(int c, int[] near, int[] far, int[] thread) {
+    if (near[c] >= 0) return near[c];
+    if (far[c] >= 0) return far[c];
+    return thread[c];
+  }
+
+  /** Returns the x-distance from c to next, its successor on a contour. */
+  private double contourStep(int c, int next, double[] offset, double[] threadOffset) {
+    return (next == left[c] || next == right[c]) ? offset[next] : threadOffset[c];
+  }
+
+  /** Returns the number of positions. */
+  public int size() { return positions.size(); }
+
+  /** Returns the i-th position in breadth-first order. */
+  public Position<E> getPosition(int i) { return positions.get(i); }
+
+  /** Returns the index of the parent of position i (or -1 for the root). */
+  public int getParent(int i) { return parent[i]; }
+
+  /** Returns the x-coordinate of position i (in units of SEPARATION). */
+  public double getX(int i) { return x[i]; }
+
+  /** Returns the y-coordinate (depth) of position i. */
+  public int getY(int i) { return y[i]; }
+
+  /** Returns the largest x-coordinate of any position. */
+  public double getWidth() { return width; }
+
+  /** Returns the largest y-coordinate (the height of the tree). */
+  public int getDepth() { return depth; }
+}
@@ -22,6 +22,7 @@
  */
 package net.datastructures;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -90,29 +91,158 @@ public abstract class AbstractBinaryTree<E> extends AbstractTree<E>
   }
 
   /**
-   * Adds positions of the subtree rooted at Position p to the given
-   * snapshot using an inorder traversal
-   * @param p       Position serving as the root of a subtree
-   * @param snapshot  a list to which results are appended
+   * Returns the first Position of the subtree rooted at p in an inorder
+   * traversal (that is, its leftmost Position).
+   * @param p  Position serving as the root of a subtree
+   * @return the leftmost Position in p's subtree
    */
-  private void inorderSubtree(Position<E> p, List<Position<E>> snapshot) {
-    if (left(p) != null)
-      inorderSubtree(left(p), snapshot);
-    snapshot.add(p);
+  private Position<E> inorderFirst(Position<E> p) {
+    while (left(p) != null)
+      p = left(p);
+    return p;
+  }
+
+  /**
+   * Returns the Position following p in an inorder traversal of the tree
+   * (or null if p is the last one). Only parent links are followed, so
+   * no extra space is needed.
+   * @param p    a valid Position within the tree
+   * @return the inorder successor of p (or null if none)
+   */
+  private Position<E> inorderAfter(Position<E> p) {
     if (right(p) != null)
-      inorderSubtree(right(p), snapshot);
+      return inorderFirst(right(p));       // leftmost position of the right subtree
+    Position<E> above = parent(p);
+    while (above != null && p == right(above)) {
+      p = above;                           // came up from the right, so keep climbing
+      above = parent(p);
+    }
+    return above;                          // first ancestor reached from its left (or null)
+  }
+
+  /**
+   * Returns the Position following p in a preorder traversal of the tree
+   * (or null if p is the last one), using parent links only.
+   * @param p    a valid Position within the tree
+   * @return the preorder successor of p (or null if none)
+   */
+  private Position<E> preorderAfter(Position<E> p) {
+    if (left(p) != null) return left(p);
+    if (right(p) != null) return right(p);
+    Position<E> above = parent(p);
+    while (above != null) {                // find nearest unexplored right subtree
+      if (p == left(above) && right(above) != null)
+        return right(above);
+      p = above;
+      above = parent(p);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the first Position of the subtree rooted at p in a postorder
+   * traversal, found by descending (leftward when possible) to a leaf.
+   * @param p  Position serving as the root of a subtree
+   * @return the first Position of p's subtree in postorder
+   */
+  private Position<E> postorderFirst(Position<E> p) {
+    while (true) {
+      if (left(p) != null) p = left(p);
+      else if (right(p) != null) p = right(p);
+      else return p;
+    }
+  }
+
+  /**
+   * Returns the Position following p in a postorder traversal of the tree
+   * (or null if p is the last one), using parent links only.
+   * @param p    a valid Position within the tree
+   * @return the postorder successor of p (or null if none)
+   */
+  private Position<E> postorderAfter(Position<E> p) {
+    Position<E> above = parent(p);
+    if (above == null) return null;        // the root is reported last
+    if (p == left(above) && right(above) != null)
+      return postorderFirst(right(above)); // left subtree done; now the right one
+    return above;
+  }
+
+  //---------------- nested binary traversal iterators ----------------
+  /*
+   * These walk from each position to the next using parent links, so
+   * (unlike the general tree versions) they need only constant extra space.
+   */
+  private class InorderIterator extends TraversalIterator {
+    private Position<E> walk = null;
+    private boolean started = false;
+    protected Position<E> advance() {
+      if (!started) {
+        started = true;
+        walk = (root() == null ? null : inorderFirst(root()));
+      } else if (walk != null)
+        walk = inorderAfter(walk);
+      return walk;
+    }
+  }
+
+  private class PreorderIterator extends TraversalIterator {
+    private Position<E> walk = null;
+    private boolean started = false;
+    protected Position<E> advance() {
+      if (!started) {
+        started = true;
+        walk = root();
+      } else if (walk != null)
+        walk = preorderAfter(walk);
+      return walk;
+    }
+  }
+
+  private class PostorderIterator extends TraversalIterator {
+    private Position<E> walk = null;
+    private boolean started = false;
+    protected Position<E> advance() {
+      if (!started) {
+        started = true;
+        walk = (root() == null ? null : postorderFirst(root()));
+      } else if (walk != null)
+        walk = postorderAfter(walk);
+      return walk;
+    }
+  }
+
+  //---------------- nested iterable classes ----------------
+  private class InorderIterable implements Iterable<Position<E>> {
+    public Iterator<Position<E>> iterator() { return new InorderIterator(); }
+  }
+
+  private class PreorderIterable implements Iterable<Position<E>> {
+    public Iterator<Position<E>> iterator() { return new PreorderIterator(); }
+  }
+
+  private class PostorderIterable implements Iterable<Position<E>> {
+    public Iterator<Position<E>> iterator() { return new PostorderIterator(); }
   }
 
   /**
    * Returns an iterable collection of positions of the tree, reported in inorder.
    * @return iterable collection of the tree's positions reported in inorder
    */
-  public Iterable<Position<E>> inorder() {
-    List<Position<E>> snapshot = new ArrayList<>();
-    if (!isEmpty())
-      inorderSubtree(root(), snapshot);   // fill the snapshot recursively
-    return snapshot;
-  }
+  public Iterable<Position<E>> inorder() { return new InorderIterable(); }
+
+  /**
+   * Returns an iterable collection of positions of the tree, reported in preorder.
+   * @return iterable collection of the tree's positions in preorder
+   */
+  @Override
+  public Iterable<Position<E>> preorder() { return new PreorderIterable(); }
+
+  /**
+   * Returns an iterable collection of positions of the tree, reported in postorder.
+   * @return iterable collection of the tree's positions in postorder
+   */
+  @Override
+  public Iterable<Position<E>> postorder() { return new PostorderIterable(); }
 
   /**
    * Returns an iterable collection of the positions of the tree using inorder traversal
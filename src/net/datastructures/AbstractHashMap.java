@@ -23,7 +23,10 @@
 package net.datastructures;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.function.BiConsumer;
 
 /**
  * An abstract base class supporting Map implementations that use hash
@@ -31,36 +34,70 @@ import java.util.Random;
  *
  * The base class provides the following means of support:
  * 1) Support for calculating hash values with MAD compression
- * 2) Support for resizing table when load factor reaches 1/2
+ * 2) Support for resizing table when load factor exceeds a given maximum
+ *    (1/2 by default), and for shrinking it again after many removals,
+ *    either all at once or incrementally (see setIncrementalResize)
  *
  * Subclass is responsible for providing abstract methods:
  *   createTable(), bucketGet(h,k), bucketPut(h,k,v),
- *   bucketRemove(h,k), and entrySet()
+ *   bucketRemove(h,k), bucketEntry(j), and entrySet()
  * and for accurately maintaining the protected member, n,
  * to reflect changes within bucketPut and bucketRemove.
+ * Its entrySet() iterators should walk the entries of an unfinished
+ * incremental resize too, by way of withOldEntries (and forEach by way of
+ * forEachOld), and fail fast if modCount changes (see AbstractMap).
+ * Neither ever needs to finish the resize first.
  *
  * @author Michael T. Goodrich
  * @author Roberto Tamassia
  * @author Michael H. Goldwasser
  */
-public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
-  protected int n = 0;                 // number of entries in the dictionary
+public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> implements Cloneable {
+  /** Number of old buckets moved to the new table by each put or remove while resizing. */
+  protected static final int MIGRATION_STEPS = 4;
+
+  /** Prime factor used when none is given. */
+  protected static final int DEFAULT_PRIME = 109345121;
+
+  /** Number of parts of the table by which batch operations group their keys. */
+  protected static final int BATCH_GROUPS = 256;
+
+  /** Maximum load factor used when none is given. */
+  protected static final double DEFAULT_LOAD_FACTOR = 0.5;
+
+  protected int n = 0;                 // number of entries in the (current) table
   protected int capacity;              // length of the table
+  private double loadFactor;           // grow when n exceeds capacity * loadFactor
+  private int minCapacity;             // never shrink below the starting capacity
   private int prime;                   // prime factor
   private long scale, shift;           // the shift and scaling factors
+  private boolean incremental = false; // resize a few buckets at a time?
+  private AbstractHashMap<K,V> old;    // the previous table while resizing incrementally (else null)
+  private int oldBucket;               // buckets of old before this one have been moved
 
-  /** Creates a hash table with the given capacity and prime factor. */
-  public AbstractHashMap(int cap, int p) {
+  /**
+   * Creates a hash table with the given capacity, prime factor and maximum
+   * load factor. The table doubles when the load factor is exceeded, and
+   * halves (but never below cap) when it drops under a quarter of it.
+   */
+  public AbstractHashMap(int cap, int p, double loadFactor) {
+    if (!(loadFactor > 0))
+      throw new IllegalArgumentException("Load factor must be positive");
+    this.loadFactor = loadFactor;
     prime = p;
     capacity = cap;
+    minCapacity = cap;
     Random rand = new Random();
     scale = rand.nextInt(prime-1) + 1;
     shift = rand.nextInt(prime);
     createTable();
   }
 
+  /** Creates a hash table with the given capacity and prime factor. */
+  public AbstractHashMap(int cap, int p) { this(cap, p, DEFAULT_LOAD_FACTOR); }
+
   /** Creates a hash table with given capacity and prime factor 109345121. */
-  public AbstractHashMap(int cap) { this(cap, 109345121); }  // default prime
+  public AbstractHashMap(int cap) { this(cap, DEFAULT_PRIME); }  // default prime
 
   /** Creates a hash table with capacity 17 and prime factor 109345121. */
   public AbstractHashMap() { this(17); }                     // default capacity
@@ -71,7 +108,7 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
    * @return true if the map is empty, false otherwise
    */
   @Override
-  public int size() { return n; }
+  public int size() { return (old == null ? n : n + old.n); }
 
   /**
    * Returns the value associated with the specified key, or null if no such entry exists.
@@ -79,7 +116,12 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
    * @return the associated value, or null if no such entry exists
    */
   @Override
-  public V get(K key) { return bucketGet(hashValue(key), key); }
+  public V get(K key) {
+    V answer = bucketGet(hashValue(key), key);
+    if (answer == null && old != null)           // may not have been moved yet
+      answer = old.bucketGet(old.hashValue(key), key);
+    return answer;
+  }
 
   /**
    * Removes the entry with the specified key, if present, and returns
@@ -88,7 +130,18 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
    * @return the previous value associated with the removed key, or null if no such entry exists
    */
   @Override
-  public V remove(K key) { return bucketRemove(hashValue(key), key); }
+  public V remove(K key) {
+    int oldSize = size();
+    V answer = bucketRemove(hashValue(key), key);
+    if (old != null) {
+      if (answer == null)                          // may not have been moved yet
+        answer = old.bucketRemove(old.hashValue(key), key);
+      migrate(MIGRATION_STEPS);
+    } else if (n < capacity * loadFactor / 4 && capacity / 2 >= minCapacity)
+      resizeTo((capacity + 1) / 2);                // half as big, now at most half full
+    if (size() != oldSize) modCount++;
+    return answer;
+  }
 
   /**
    * Associates the given value with the given key. If an entry with
@@ -101,20 +154,203 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
    */
   @Override
   public V put(K key, V value) {
+    int oldSize = size();
     V answer = bucketPut(hashValue(key), key, value);
-    if (n > capacity / 2)              // keep load factor <= 0.5
-      resize(2 * capacity - 1);        // (or find a nearby prime)
+    if (old != null) {
+      V previous = old.bucketRemove(old.hashValue(key), key);   // each key lives in one table
+      if (answer == null) answer = previous;
+      migrate(MIGRATION_STEPS);
+    }
+    if (size() != oldSize) modCount++;
+    if (n > capacity * loadFactor || (loadFactor < 1 && n >= capacity - 1))   // or leave a slot empty
+      resizeTo(2 * capacity - 1);      // (or find a nearby prime)
     return answer;
   }
 
-  // private utilities
-  /** Hash function applying MAD method to default hash code. */
-  private int hashValue(K key) {
+  /**
+   * Returns the maximum load factor of the table.
+   * @return the maximum load factor
+   */
+  public double getLoadFactor() { return loadFactor; }
+
+  /**
+   * Resizes the table now, if necessary, so that it can hold the given
+   * number of entries without resizing again. This is done all at once,
+   * even in incremental mode, and is meant for use before a bulk load.
+   * @param expectedSize  the number of entries the map should have room for
+   */
+  public void ensureCapacity(int expectedSize) {
+    int cap = capacityFor(expectedSize, loadFactor);
+    if (cap > capacity) {
+      finishResize();
+      modCount++;
+      resize(cap);
+    }
+  }
+
+  /**
+   * Associates values[i] with keys[i] for each i, as if by put, with later
+   * pairs winning when a key repeats. The table is resized at most once,
+   * up front, and the entries are then stored bucket by bucket, so that a
+   * large batch sweeps through the table rather than jumping around it.
+   * @param keys    the keys
+   * @param values  the values, one per key
+   * @throws IllegalArgumentException if the arrays differ in length
+   */
+  public void putAll(K[] keys, V[] values) throws IllegalArgumentException {
+    if (keys.length != values.length)
+      throw new IllegalArgumentException("Need one value per key");
+    finishResize();
+    int needed = size() + keys.length;
+    if (needed > capacity * loadFactor) {      // resize once, not in the middle of the batch
+      modCount++;
+      resize(Math.max(capacityFor(needed, loadFactor), 2 * capacity - 1));   // at least as big as put would
+    }
+    int oldSize = n;
+    int[] hashes = new int[keys.length];
+    for (int i : byBucket(keys, hashes))
+      bucketPut(hashes[i], keys[i], values[i]);
+    if (n != oldSize) modCount++;
+  }
+
+  /**
+   * Copies every entry of the given map into this one, as a batch.
+   * @param other  the map whose entries are to be copied
+   */
+  @SuppressWarnings({"unchecked"})
+  public void putAll(Map<K,V> other) {
+    K[] keys = (K[]) new Object[other.size()];   // only ever read back as K
+    V[] values = (V[]) new Object[other.size()];
+    int i = 0;
+    for (Entry<K,V> e : other.entrySet()) {
+      keys[i] = e.getKey();
+      values[i++] = e.getValue();
+    }
+    putAll(keys, values);
+  }
+
+  /**
+   * Looks up every key of the batch, storing the value associated with
+   * keys[i] (or null, if none) in results[i]. The lookups are made bucket
+   * by bucket, except while an incremental resize is in progress.
+   * @param keys     the keys to look up
+   * @param results  array receiving the values, at least as long as keys
+   * @return the number of keys found
+   */
+  public int getAll(K[] keys, V[] results) {
+    int found = 0;
+    if (old != null) {                         // two tables to search; do it one key at a time
+      for (int i=0; i < keys.length; i++)
+        if ((results[i] = get(keys[i])) != null) found++;
+      return found;
+    }
+    int[] hashes = new int[keys.length];
+    for (int i : byBucket(keys, hashes))
+      if ((results[i] = bucketGet(hashes[i], keys[i])) != null) found++;
+    return found;
+  }
+
+  /**
+   * Removes the entries with the given keys, if present, bucket by bucket.
+   * The table is shrunk at most once, after all the removals.
+   * @param keys  the keys whose entries are to be removed
+   * @return the number of entries removed
+   */
+  public int removeAll(K[] keys) {
+    finishResize();
+    int oldSize = n;
+    int[] hashes = new int[keys.length];
+    for (int i : byBucket(keys, hashes))
+      bucketRemove(hashes[i], keys[i]);
+    if (n != oldSize) modCount++;
+    int cap = capacity;
+    while (n < cap * loadFactor / 4 && cap / 2 >= minCapacity)
+      cap = (cap + 1) / 2;                     // as many halvings as single removes would make
+    if (cap != capacity) {
+      modCount++;
+      resize(cap);
+    }
+    return oldSize - n;
+  }
+
+  /**
+   * Computes hashes[i] for every key, and returns the indices of the keys
+   * grouped by the part of the table where their search begins (the table
+   * is split into BATCH_GROUPS equal parts), keeping the original order
+   * within a group. This is a single counting-sort pass, so it costs far
+   * less than the lookups it speeds up.
+   */
+  private int[] byBucket(K[] keys, int[] hashes) {
+    int[] group = new int[keys.length];
+    int[] start = new int[BATCH_GROUPS + 1];
+    for (int i=0; i < keys.length; i++) {
+      hashes[i] = hashValue(keys[i]);
+      group[i] = (int) ((long) bucketOf(hashes[i]) * BATCH_GROUPS / capacity);
+      start[group[i] + 1]++;
+    }
+    for (int g=0; g < BATCH_GROUPS; g++)
+      start[g + 1] += start[g];                // start[g] is now where group g begins
+    int[] order = new int[keys.length];
+    for (int i=0; i < keys.length; i++)
+      order[start[group[i]]++] = i;
+    return order;
+  }
+
+  /**
+   * Returns a capacity large enough to hold the given number of entries
+   * without exceeding the given load factor.
+   * @param expectedSize  the number of entries
+   * @param loadFactor    the maximum load factor
+   * @return a large enough capacity
+   */
+  protected static int capacityFor(int expectedSize, double loadFactor) {
+    return (int) Math.min(Math.ceil(expectedSize / loadFactor) + 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Chooses how the table is resized. By default, the put that pushes the
+   * load factor past its maximum (or the remove that drops it far below)
+   * rehashes every entry before returning. In incremental mode, it only
+   * allocates the new table; the old one is kept, both are searched, and
+   * each later put or remove moves the next few old buckets across, so no
+   * single operation takes time proportional to the size of the map.
+   * Iterations visit both tables and do not move anything. Turning the
+   * mode off finishes any resize in progress.
+   * @param incremental  true to resize incrementally
+   */
+  public void setIncrementalResize(boolean incremental) {
+    this.incremental = incremental;
+    if (!incremental) finishResize();
+  }
+
+  /**
+   * Tests whether incremental resizing is turned on.
+   * @return true if the table is resized incrementally
+   */
+  public boolean isIncrementalResize() { return incremental; }
+
+  // protected utilities
+  /**
+   * Hash function applying MAD method to default hash code. Subclasses may
+   * override this with their own hash function; whatever it returns is the
+   * value h passed to the bucket methods.
+   */
+  protected int hashValue(K key) {
     return (int) ((Math.abs(key.hashCode()*scale + shift) % prime) % capacity);
   }
 
-  /** Updates the size of the hash table and rehashes all entries. */
-  private void resize(int newCap) {
+  /**
+   * Returns the index of the bucket (or slot) where the search for a key
+   * with hash value h begins. Subclasses whose hash values are not already
+   * table indices should override this.
+   */
+  protected int bucketOf(int h) { return h; }
+
+  /**
+   * Updates the size of the hash table and rehashes all entries.
+   * Subclasses may override this with a cheaper way to move their entries.
+   */
+  protected void resize(int newCap) {
     ArrayList<Entry<K,V>> buffer = new ArrayList<>(n);
     for (Entry<K,V> e : entrySet())
       buffer.add(e);
@@ -125,6 +361,97 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
       put(e.getKey(), e.getValue());
   }
 
+  /** Resizes the table to the given capacity, in the current mode. */
+  private void resizeTo(int newCap) {
+    if (incremental)
+      startResize(newCap);
+    else {
+      modCount++;
+      resize(newCap);
+    }
+  }
+
+  /**
+   * Starts an incremental resize. The current table is handed over to a
+   * shallow copy of this map (so the copy's fields still describe it) and
+   * a new, empty table is created for this map.
+   */
+  @SuppressWarnings({"unchecked"})
+  private void startResize(int newCap) {
+    finishResize();                    // normally done long ago
+    modCount++;
+    try {
+      old = (AbstractHashMap<K,V>) clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);     // cannot happen, we are Cloneable
+    }
+    oldBucket = 0;
+    capacity = newCap;
+    createTable();                     // based on updated capacity
+    n = 0;                             // the entries are all in old, for now
+  }
+
+  /**
+   * Moves the entries of the next k buckets of the old table (if any) into
+   * the current one. A put moves several buckets but adds at most one
+   * entry, so the old table is emptied after a small fraction of the puts
+   * that would make the new table grow again.
+   */
+  private void migrate(int k) {
+    if (old != null) modCount++;       // entries are about to move
+    for (; k > 0 && old != null; k--) {
+      Entry<K,V> e;
+      while ((e = old.bucketEntry(oldBucket)) != null) {
+        K key = e.getKey();
+        V value = e.getValue();
+        old.bucketRemove(old.hashValue(key), key);
+        bucketPut(hashValue(key), key, value);
+      }
+      if (++oldBucket == old.capacity)
+        old = null;                    // all moved, let the old table go
+    }
+  }
+
+  /** Completes any incremental resize in progress, emptying the old table. */
+  protected void finishResize() {
+    migrate(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns an iterator over the entries not yet moved out of the old table
+   * by an incremental resize, followed by those of the given iterator over
+   * the current table. It fails fast if this map is modified. Without a
+   * resize in progress, the given iterator is returned as is.
+   */
+  protected Iterator<Entry<K,V>> withOldEntries(Iterator<Entry<K,V>> current) {
+    if (old == null) return current;
+    Iterator<Entry<K,V>> unmoved = old.entrySet().iterator();
+    int expectedModCount = modCount;
+    return new Iterator<Entry<K,V>>() {
+      public boolean hasNext() { return unmoved.hasNext() || current.hasNext(); }
+      public Entry<K,V> next() {
+        checkForComodification(expectedModCount);   // the old table's iterator checks only its own count
+        if (unmoved.hasNext()) return unmoved.next();
+        if (!current.hasNext()) throw new NoSuchElementException("No further entries");
+        return current.next();
+      }
+    };
+  }
+
+  /**
+   * Performs the given action on each entry not yet moved out of the old
+   * table by an incremental resize (if any), failing fast if the action
+   * modifies this map.
+   */
+  protected void forEachOld(BiConsumer<? super K, ? super V> action) {
+    if (old == null) return;
+    int expectedModCount = modCount;
+    for (Entry<K,V> e : old.entrySet()) {
+      action.accept(e.getKey(), e.getValue());
+      checkForComodification(expectedModCount);
+    }
+  }
+
   // protected abstract methods to be implemented by subclasses
   /** Creates an empty table having length equal to current capacity. */
   protected abstract void createTable();
@@ -156,4 +483,12 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
    * @return   previous value associated with k (or null, if no such entry)
    */
   protected abstract V bucketRemove(int h, K k);
+
+  /**
+   * Returns any one entry stored in the bucket at index j (which is less
+   * than capacity), or null if that bucket is empty.
+   * @param j  the index of the bucket
+   * @return   an entry of the bucket (or null, if it is empty)
+   */
+  protected abstract Entry<K,V> bucketEntry(int j);
 }
@@ -22,6 +22,7 @@
  */
 package net.datastructures;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 
 /**
@@ -33,6 +34,10 @@ import java.util.Iterator;
  *    entry interface
  * 3) It provides implemenations of the keySet and values methods, based upon use
  *    of a presumed implementation of the entrySet method.
+ * 4) It keeps a count of structural modifications, modCount, which subclasses
+ *    should increment whenever entries are added or removed, or moved to
+ *    other places in their storage (as by a resize), so that their iterators
+ *    can detect changes made during an iteration.
  *
  * @author Michael T. Goodrich
  * @author Roberto Tamassia
@@ -40,6 +45,21 @@ import java.util.Iterator;
  */
 public abstract class AbstractMap<K,V> implements Map<K,V> {
 
+  /** Number of structural modifications made to the map so far. */
+  protected int modCount = 0;
+
+  /**
+   * Throws ConcurrentModificationException if the map has been modified
+   * since modCount had the given value.
+   * @param expectedModCount  the value of modCount when the iteration began
+   * @throws ConcurrentModificationException if the map has been modified
+   */
+  protected void checkForComodification(int expectedModCount)
+    throws ConcurrentModificationException {
+    if (modCount != expectedModCount)
+      throw new ConcurrentModificationException("map was modified during iteration");
+  }
+
   /**
    * Tests whether the map is empty.
    * @return true if the map is empty, false otherwise
@@ -22,9 +22,9 @@
  */
 package net.datastructures;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.List;         // for use as snapshot iterator
-import java.util.ArrayList;    // for use as snapshot iterator
+import java.util.NoSuchElementException;
 
 /**
  * An abstract base class providing some functionality of the Tree interface.
@@ -40,6 +40,13 @@ import java.util.ArrayList;    // for use as snapshot iterator
  */
 public abstract class AbstractTree<E> implements Tree<E> {
 
+  /**
+   * Number of structural modifications made to the tree. Concrete
+   * subclasses should increment this whenever positions are added,
+   * removed or relinked, so that traversal iterators can fail fast.
+   */
+  protected int modCount = 0;
+
   /**
    * Returns true if Position p has one or more children.
    *
@@ -165,68 +172,157 @@ public abstract class AbstractTree<E> implements Tree<E> {
   @Override
   public Iterable<Position<E>> positions() { return preorder(); }
 
+  //---------------- nested TraversalIterator class ----------------
   /**
-   * Adds positions of the subtree rooted at Position p to the given
-   * snapshot using a preorder traversal
-   * @param p       Position serving as the root of a subtree
-   * @param snapshot  a list to which results are appended
+   * Base class for the lazy traversal iterators. Each position is found
+   * only when it is requested, so an iteration that stops early touches
+   * only the positions it consumed, and no snapshot of the tree is built.
+   * Iterators are fail-fast: once the tree is structurally modified, any
+   * further use throws a ConcurrentModificationException.
    */
-  private void preorderSubtree(Position<E> p, List<Position<E>> snapshot) {
-    snapshot.add(p);                       // for preorder, we add position p before exploring subtrees
-    for (Position<E> c : children(p))
-      preorderSubtree(c, snapshot);
-  }
+  protected abstract class TraversalIterator implements Iterator<Position<E>> {
+    private final int expectedModCount = modCount;
+    private Position<E> upcoming = null;   // next position to report (if fetched)
+    private boolean fetched = false;       // whether upcoming is up to date
 
-  /**
-   * Returns an iterable collection of positions of the tree, reported in preorder.
-   * @return iterable collection of the tree's positions in preorder
+    /**
+     * Returns the next position of the traversal, or null if none remain.
+     * @return next position of the traversal (or null if finished)
+     */
+    protected abstract Position<E> advance();
+
+    private void checkForComodification() throws ConcurrentModificationException {
+      if (modCount != expectedModCount)
+        throw new ConcurrentModificationException("tree was modified during iteration");
+    }
+
+    /**
+     * Tests whether the iterator has a next position.
+     * @return true if there are further positions, false otherwise
+     * @throws ConcurrentModificationException if the tree has been modified
+     */
+    public boolean hasNext() {
+      checkForComodification();
+      if (!fetched) {
+        upcoming = advance();
+        fetched = true;
+      }
+      return upcoming != null;
+    }
+
+    /**
+     * Returns the next position in the iterator.
+     * @return next position
+     * @throws NoSuchElementException if there are no further positions
+     * @throws ConcurrentModificationException if the tree has been modified
+     */
+    public Position<E> next() throws NoSuchElementException {
+      if (!hasNext()) throw new NoSuchElementException("No further positions");
+      fetched = false;
+      return upcoming;
+    }
+
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested TraversalIterator class -----------
+
+  //---------------- nested PreorderIterator class ----------------
+  /*
+   * Keeps one child iterator per level of the current path, so the extra
+   * space is proportional to the depth of the tree rather than its size.
    */
-  public Iterable<Position<E>> preorder() {
-    List<Position<E>> snapshot = new ArrayList<>();
-    if (!isEmpty())
-      preorderSubtree(root(), snapshot);   // fill the snapshot recursively
-    return snapshot;
+  private class PreorderIterator extends TraversalIterator {
+    private Stack<Iterator<Position<E>>> fringe = new LinkedStack<>();
+    private boolean started = false;
+    protected Position<E> advance() {
+      if (!started) {
+        started = true;
+        return visit(root());                // root (or null for an empty tree)
+      }
+      while (!fringe.isEmpty()) {
+        Iterator<Position<E>> walk = fringe.top();
+        if (walk.hasNext())
+          return visit(walk.next());         // next child of the deepest unfinished position
+        fringe.pop();                        // subtree finished; resume with its parent
+      }
+      return null;
+    }
+    private Position<E> visit(Position<E> p) {
+      if (p != null)
+        fringe.push(children(p).iterator()); // p's subtree is explored after p itself
+      return p;
+    }
+  } //----------- end of nested PreorderIterator class -----------
+
+  //---------------- nested PostorderIterator class ----------------
+  private class PostorderIterator extends TraversalIterator {
+    private Stack<Position<E>> path = new LinkedStack<>();
+    private Stack<Iterator<Position<E>>> fringe = new LinkedStack<>();
+    PostorderIterator() {
+      if (root() != null) {
+        path.push(root());
+        fringe.push(children(root()).iterator());
+      }
+    }
+    protected Position<E> advance() {
+      while (!path.isEmpty()) {
+        Iterator<Position<E>> walk = fringe.top();
+        if (walk.hasNext()) {
+          Position<E> c = walk.next();       // descend into the next child's subtree
+          path.push(c);
+          fringe.push(children(c).iterator());
+        } else {
+          fringe.pop();
+          return path.pop();                 // all of its subtrees have been reported
+        }
+      }
+      return null;
+    }
+  } //----------- end of nested PostorderIterator class -----------
+
+  //---------------- nested BreadthFirstIterator class ----------------
+  private class BreadthFirstIterator extends TraversalIterator {
+    private Queue<Position<E>> fringe = new LinkedQueue<>();
+    BreadthFirstIterator() {
+      if (root() != null)
+        fringe.enqueue(root());              // start with the root
+    }
+    protected Position<E> advance() {
+      if (fringe.isEmpty()) return null;
+      Position<E> p = fringe.dequeue();      // remove from front of the queue
+      for (Position<E> c : children(p))
+        fringe.enqueue(c);                   // add children to back of queue
+      return p;
+    }
+  } //----------- end of nested BreadthFirstIterator class -----------
+
+  //---------------- nested iterable classes ----------------
+  private class PreorderIterable implements Iterable<Position<E>> {
+    public Iterator<Position<E>> iterator() { return new PreorderIterator(); }
+  }
+
+  private class PostorderIterable implements Iterable<Position<E>> {
+    public Iterator<Position<E>> iterator() { return new PostorderIterator(); }
+  }
+
+  private class BreadthFirstIterable implements Iterable<Position<E>> {
+    public Iterator<Position<E>> iterator() { return new BreadthFirstIterator(); }
   }
 
   /**
-   * Adds positions of the subtree rooted at Position p to the given
-   * snapshot using a postorder traversal
-   * @param p       Position serving as the root of a subtree
-   * @param snapshot  a list to which results are appended
+   * Returns an iterable collection of positions of the tree, reported in preorder.
+   * @return iterable collection of the tree's positions in preorder
    */
-  private void postorderSubtree(Position<E> p, List<Position<E>> snapshot) {
-    for (Position<E> c : children(p))
-      postorderSubtree(c, snapshot);
-    snapshot.add(p);                       // for postorder, we add position p after exploring subtrees
-  }
+  public Iterable<Position<E>> preorder() { return new PreorderIterable(); }
 
   /**
    * Returns an iterable collection of positions of the tree, reported in postorder.
    * @return iterable collection of the tree's positions in postorder
    */
-  public Iterable<Position<E>> postorder() {
-    List<Position<E>> snapshot = new ArrayList<>();
-    if (!isEmpty())
-      postorderSubtree(root(), snapshot);   // fill the snapshot recursively
-    return snapshot;
-  }
+  public Iterable<Position<E>> postorder() { return new PostorderIterable(); }
 
   /**
    * Returns an iterable collection of positions of the tree in breadth-first order.
    * @return iterable collection of the tree's positions in breadth-first order
    */
-  public Iterable<Position<E>> breadthfirst() {
-    List<Position<E>> snapshot = new ArrayList<>();
-    if (!isEmpty()) {
-      Queue<Position<E>> fringe = new LinkedQueue<>();
-      fringe.enqueue(root());                 // start with the root
-      while (!fringe.isEmpty()) {
-        Position<E> p = fringe.dequeue();     // remove from front of the queue
-        snapshot.add(p);                      // report this position
-        for (Position<E> c : children(p))
-          fringe.enqueue(c);                  // add children to back of queue
-      }
-    }
-    return snapshot;
-  }
+  public Iterable<Position<E>> breadthfirst() { return new BreadthFirstIterable(); }
 }
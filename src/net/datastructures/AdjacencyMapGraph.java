@@ -158,16 +158,24 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
   /** Removes a vertex and all its incident edges from the graph. */
   public void removeVertex(Vertex<V> v) throws IllegalArgumentException {
     InnerVertex<V> vert = validate(v);
-    // remove all incident edges from the graph
-    for (Edge<E> e : vert.getOutgoing().values())
+    // remove all incident edges from the graph (copied first, as the maps are live views)
+    for (Edge<E> e : copyOf(vert.getOutgoing().values()))
       removeEdge(e);
-    for (Edge<E> e : vert.getIncoming().values())
+    for (Edge<E> e : copyOf(vert.getIncoming().values()))
       removeEdge(e);
     // remove this vertex from the list of vertices
     vertices.remove(vert.getPosition());
     vert.setPosition(null);             // invalidates the vertex
   }
 
+  /** Returns a list holding the elements of the given iterable. */
+  private static <T> java.util.ArrayList<T> copyOf(Iterable<T> items) {
+    java.util.ArrayList<T> copy = new java.util.ArrayList<>();
+    for (T item : items)
+      copy.add(item);
+    return copy;
+  }
+
   @SuppressWarnings({"unchecked"})
   /** Removes an edge from the graph. */
   public void removeEdge(Edge<E> e) throws IllegalArgumentException {
@@ -0,0 +1,651 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.datastructures;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * An implementation of a sorted map using a B+ tree.
+ *
+ * Every node holds up to ORDER keys in a contiguous array (and, unless it
+ * is the root, at least half as many), so the tree has height about
+ * log(n) / log(ORDER / 2) and a search compares keys within one small
+ * array per level instead of following a pointer per comparison. Entries
+ * live only in the leaves, whose keys and values are in parallel arrays;
+ * the keys of internal nodes are separators, with the keys of child i
+ * being at least keys[i-1] and less than keys[i]. The leaves are linked
+ * in both directions, so iterations, subMap, and the searches for nearby
+ * keys walk along the leaves rather than up and down the tree.
+ *
+ * The entries returned by the navigation methods are new objects holding
+ * the key and value at the time of the call. The iterables returned by
+ * entrySet and subMap are live views whose iterators fail fast if the map
+ * is modified.
+ */
+public class BPlusTreeMap<K,V> extends AbstractSortedMap<K,V> {
+  /** Maximum number of keys in a node when none is given. */
+  public static final int DEFAULT_ORDER = 64;
+
+  //---------------- nested Node classes ----------------
+  /** A node of the tree, with its keys in keys[0..size-1]. */
+  private static class Node {
+    int size = 0;
+    final Object[] keys;
+    Node(int capacity) { keys = new Object[capacity]; }
+  }
+
+  /** A leaf, holding values[j] for keys[j], linked to its neighbors. */
+  private static class Leaf extends Node {
+    final Object[] values;
+    Leaf prev, next;
+    Leaf(int capacity) {
+      super(capacity);
+      values = new Object[capacity];
+    }
+  }
+
+  /** An internal node, with size + 1 children. */
+  private static class Inner extends Node {
+    final Node[] children;
+    Inner(int capacity) {
+      super(capacity);
+      children = new Node[capacity + 1];
+    }
+  } //----------- end of nested Node classes -----------
+
+  private final int order;              // maximum number of keys in a node
+  private final int minKeys;            // minimum number of keys in a node other than the root
+  private Node root;
+  private int height = 0;               // number of internal levels above the leaves
+  private int n = 0;                    // number of entries
+  private Inner[] path = new Inner[1];  // internal nodes visited by the last descent
+  private int[] pathIndex = new int[1]; // and the child taken at each
+
+  /** Constructs an empty map using the natural ordering of keys. */
+  public BPlusTreeMap() { this(new DefaultComparator<K>(), DEFAULT_ORDER); }
+
+  /**
+   * Constructs an empty map using the given comparator to order keys.
+   * @param comp comparator defining the order of keys in the map
+   */
+  public BPlusTreeMap(Comparator<K> comp) { this(comp, DEFAULT_ORDER); }
+
+  /**
+   * Constructs an empty map using the given comparator, whose nodes hold
+   * at most the given number of keys.
+   * @param comp   comparator defining the order of keys in the map
+   * @param order  maximum number of keys in a node (at least 3)
+   */
+  public BPlusTreeMap(Comparator<K> comp, int order) {
+    super(comp);
+    if (order < 3)
+      throw new IllegalArgumentException("Order must be at least 3");
+    this.order = order;
+    minKeys = order / 2;
+    root = newLeaf();
+  }
+
+  // nodes have room for one extra key, held just before a split
+  private Leaf newLeaf() { return new Leaf(order + 1); }
+  private Inner newInner() { return new Inner(order + 1); }
+
+  @SuppressWarnings({"unchecked"})
+  private K key(Node x, int j) { return (K) x.keys[j]; }
+
+  @SuppressWarnings({"unchecked"})
+  private V value(Leaf x, int j) { return (V) x.values[j]; }
+
+  /** Returns the first index j of x with keys[j] >= key (or x.size if none). */
+  private int lowerBound(Node x, K key) {
+    int low = 0, high = x.size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(key(x, mid), key) < 0) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  /** Returns the first index j of x with keys[j] > key (or x.size if none). */
+  private int upperBound(Node x, K key) {
+    int low = 0, high = x.size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(key(x, mid), key) <= 0) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the leaf where key belongs, recording the internal nodes on
+   * the way down (and the child taken at each) in path and pathIndex.
+   */
+  private Leaf findLeaf(K key) {
+    Node x = root;
+    for (int d=0; d < height; d++) {
+      Inner in = (Inner) x;
+      int i = upperBound(in, key);
+      path[d] = in;
+      pathIndex[d] = i;
+      x = in.children[i];
+    }
+    return (Leaf) x;
+  }
+
+  /**
+   * Returns the number of entries in the map.
+   * @return number of entries in the map
+   */
+  @Override
+  public int size() { return n; }
+
+  /**
+   * Returns the value associated with the specified key, or null if no such entry exists.
+   * @param key  the key whose associated value is to be returned
+   * @return the associated value, or null if no such entry exists
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public V get(K key) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    int j = lowerBound(leaf, key);
+    if (j == leaf.size || compare(key(leaf, j), key) != 0) return null;   // no match
+    return value(leaf, j);
+  }
+
+  /**
+   * Associates the given value with the given key. If an entry with
+   * the key was already in the map, this replaced the previous value
+   * with the new one and returns the old value. Otherwise, a new
+   * entry is added and null is returned.
+   * @param key    key with which the specified value is to be associated
+   * @param value  value to be associated with the specified key
+   * @return the previous value associated with the key (or null, if no such entry)
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public V put(K key, V value) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    int j = lowerBound(leaf, key);
+    if (j < leaf.size && compare(key(leaf, j), key) == 0) {            // match exists
+      V old = value(leaf, j);
+      leaf.values[j] = value;
+      return old;
+    }
+    System.arraycopy(leaf.keys, j, leaf.keys, j + 1, leaf.size - j);   // make room at j
+    System.arraycopy(leaf.values, j, leaf.values, j + 1, leaf.size - j);
+    leaf.keys[j] = key;
+    leaf.values[j] = value;
+    leaf.size++;
+    n++;
+    modCount++;
+    if (leaf.size > order)
+      splitLeaf(leaf);
+    return null;
+  }
+
+  /** Splits an overfull leaf in two, adding the new one to the tree. */
+  private void splitLeaf(Leaf leaf) {
+    Leaf right = newLeaf();
+    int half = leaf.size / 2;
+    right.size = leaf.size - half;
+    System.arraycopy(leaf.keys, half, right.keys, 0, right.size);
+    System.arraycopy(leaf.values, half, right.values, 0, right.size);
+    Arrays.fill(leaf.keys, half, leaf.size, null);           // let them be collected
+    Arrays.fill(leaf.values, half, leaf.size, null);
+    leaf.size = half;
+    right.next = leaf.next;                                             // link right after leaf
+    right.prev = leaf;
+    if (leaf.next != null) leaf.next.prev = right;
+    leaf.next = right;
+    addChild(height - 1, right.keys[0], right);
+  }
+
+  /**
+   * Inserts child, whose keys are at least separator, just after the node
+   * reached from path[d], splitting path[d] (and so on upward) if it
+   * overflows. A d of -1 means that child's left neighbor is the root.
+   */
+  private void addChild(int d, Object separator, Node child) {
+    if (d < 0) {                                            // the root was split
+      Inner top = newInner();
+      top.keys[0] = separator;
+      top.children[0] = root;
+      top.children[1] = child;
+      top.size = 1;
+      root = top;
+      height++;
+      if (height > path.length) {
+        path = Arrays.copyOf(path, 2 * height);
+        pathIndex = Arrays.copyOf(pathIndex, 2 * height);
+      }
+      return;
+    }
+    Inner parent = path[d];
+    int i = pathIndex[d];
+    System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.size - i);
+    System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.size - i);
+    parent.keys[i] = separator;
+    parent.children[i + 1] = child;
+    parent.size++;
+    if (parent.size > order) {                             // split, moving the middle key up
+      Inner right = newInner();
+      int mid = parent.size / 2;
+      right.size = parent.size - mid - 1;
+      System.arraycopy(parent.keys, mid + 1, right.keys, 0, right.size);
+      System.arraycopy(parent.children, mid + 1, right.children, 0, right.size + 1);
+      Object up = parent.keys[mid];
+      Arrays.fill(parent.keys, mid, parent.size, null);
+      Arrays.fill(parent.children, mid + 1, parent.size + 1, null);
+      parent.size = mid;
+      addChild(d - 1, up, right);
+    }
+  }
+
+  /**
+   * Removes the entry with the specified key, if present, and returns
+   * its associated value. Otherwise does nothing and returns null.
+   * @param key  the key whose entry is to be removed from the map
+   * @return the previous value associated with the removed key, or null if no such entry exists
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public V remove(K key) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    int j = lowerBound(leaf, key);
+    if (j == leaf.size || compare(key(leaf, j), key) != 0) return null;  // no match
+    V answer = value(leaf, j);
+    System.arraycopy(leaf.keys, j + 1, leaf.keys, j, leaf.size - j - 1);
+    System.arraycopy(leaf.values, j + 1, leaf.values, j, leaf.size - j - 1);
+    leaf.size--;
+    leaf.keys[leaf.size] = null;
+    leaf.values[leaf.size] = null;
+    n--;
+    modCount++;
+    Node x = leaf;
+    for (int d = height - 1; d >= 0 && x.size < minKeys; d--) {
+      if (!rebalance(path[d], pathIndex[d]))
+        break;                                             // fixed by borrowing
+      x = path[d];                                         // merged, so the parent lost a key
+    }
+    if (height > 0 && root.size == 0) {                    // the root has a single child
+      root = ((Inner) root).children[0];
+      height--;
+    }
+    return answer;
+  }
+
+  /**
+   * Refills child i of parent, which has one key too few, from a sibling:
+   * by moving one key across if the sibling can spare it, and otherwise by
+   * merging the two. Returns true if they were merged.
+   */
+  private boolean rebalance(Inner parent, int i) {
+    if (i > 0 && parent.children[i - 1].size > minKeys) {
+      borrowFromLeft(parent, i);
+      return false;
+    }
+    if (i < parent.size && parent.children[i + 1].size > minKeys) {
+      borrowFromRight(parent, i);
+      return false;
+    }
+    merge(parent, (i > 0 ? i : i + 1));                    // merge with whichever sibling exists
+    return true;
+  }
+
+  /** Moves the last key of child i-1 of parent to the front of child i. */
+  private void borrowFromLeft(Inner parent, int i) {
+    Node left = parent.children[i - 1], x = parent.children[i];
+    System.arraycopy(x.keys, 0, x.keys, 1, x.size);
+    if (x instanceof Leaf) {
+      Leaf l = (Leaf) left, xl = (Leaf) x;
+      System.arraycopy(xl.values, 0, xl.values, 1, x.size);
+      x.keys[0] = l.keys[l.size - 1];
+      xl.values[0] = l.values[l.size - 1];
+      l.values[l.size - 1] = null;
+      parent.keys[i - 1] = x.keys[0];
+    } else {
+      Inner l = (Inner) left, xi = (Inner) x;
+      System.arraycopy(xi.children, 0, xi.children, 1, x.size + 1);
+      x.keys[0] = parent.keys[i - 1];                      // the separator comes down
+      xi.children[0] = l.children[l.size];
+      l.children[l.size] = null;
+      parent.keys[i - 1] = l.keys[l.size - 1];             // and the left's last key goes up
+    }
+    left.keys[left.size - 1] = null;
+    left.size--;
+    x.size++;
+  }
+
+  /** Moves the first key of child i+1 of parent to the end of child i. */
+  private void borrowFromRight(Inner parent, int i) {
+    Node x = parent.children[i], right = parent.children[i + 1];
+    if (x instanceof Leaf) {
+      Leaf xl = (Leaf) x, r = (Leaf) right;
+      x.keys[x.size] = r.keys[0];
+      xl.values[x.size] = r.values[0];
+      System.arraycopy(r.values, 1, r.values, 0, r.size - 1);
+      r.values[r.size - 1] = null;
+      System.arraycopy(r.keys, 1, r.keys, 0, r.size - 1);
+      parent.keys[i] = r.keys[0];
+    } else {
+      Inner xi = (Inner) x, r = (Inner) right;
+      x.keys[x.size] = parent.keys[i];                     // the separator comes down
+      xi.children[x.size + 1] = r.children[0];
+      parent.keys[i] = r.keys[0];                          // and the right's first key goes up
+      System.arraycopy(r.children, 1, r.children, 0, r.size);
+      r.children[r.size] = null;
+      System.arraycopy(r.keys, 1, r.keys, 0, r.size - 1);
+    }
+    right.keys[right.size - 1] = null;
+    right.size--;
+    x.size++;
+  }
+
+  /** Merges child i of parent into child i-1, removing child i and its separator. */
+  private void merge(Inner parent, int i) {
+    Node left = parent.children[i - 1], right = parent.children[i];
+    if (left instanceof Leaf) {
+      Leaf l = (Leaf) left, r = (Leaf) right;
+      System.arraycopy(r.keys, 0, l.keys, l.size, r.size);
+      System.arraycopy(r.values, 0, l.values, l.size, r.size);
+      l.size += r.size;
+      l.next = r.next;                                     // unlink r
+      if (r.next != null) r.next.prev = l;
+    } else {
+      Inner l = (Inner) left, r = (Inner) right;
+      l.keys[l.size] = parent.keys[i - 1];                 // the separator comes down
+      System.arraycopy(r.keys, 0, l.keys, l.size + 1, r.size);
+      System.arraycopy(r.children, 0, l.children, l.size + 1, r.size + 1);
+      l.size += r.size + 1;
+    }
+    System.arraycopy(parent.keys, i, parent.keys, i - 1, parent.size - i);
+    System.arraycopy(parent.children, i + 1, parent.children, i, parent.size - i);
+    parent.size--;
+    parent.keys[parent.size] = null;
+    parent.children[parent.size + 1] = null;
+  }
+
+  /**
+   * Replaces the contents of this empty map with the given entries, whose
+   * keys must be in strictly increasing order, building the tree bottom-up
+   * in O(n) time with every node (but perhaps the root) at least half full.
+   * @param keys    the keys, in increasing order
+   * @param values  the values, one per key
+   * @throws IllegalStateException if the map is not empty
+   * @throws IllegalArgumentException if the keys are not strictly increasing
+   */
+  public void bulkLoad(K[] keys, V[] values)
+    throws IllegalStateException, IllegalArgumentException {
+    if (n > 0) throw new IllegalStateException("Map must be empty");
+    if (keys.length != values.length)
+      throw new IllegalArgumentException("Need one value per key");
+    for (int j=0; j < keys.length; j++) {
+      checkKey(keys[j]);
+      if (j > 0 && compare(keys[j - 1], keys[j]) >= 0)
+        throw new IllegalArgumentException("Keys must be strictly increasing");
+    }
+    if (keys.length == 0) return;
+    int count = (keys.length + order - 1) / order;         // as few leaves as possible
+    Node[] level = new Node[count];
+    Object[] lowest = new Object[count];                   // smallest key under each node
+    Leaf prev = null;
+    for (int c=0, j=0; c < count; c++) {
+      Leaf leaf = newLeaf();
+      leaf.size = share(keys.length, count, c);            // sizes differ by at most one
+      System.arraycopy(keys, j, leaf.keys, 0, leaf.size);
+      System.arraycopy(values, j, leaf.values, 0, leaf.size);
+      j += leaf.size;
+      leaf.prev = prev;
+      if (prev != null) prev.next = leaf;
+      prev = leaf;
+      level[c] = leaf;
+      lowest[c] = leaf.keys[0];
+    }
+    int levels = 0;
+    while (level.length > 1) {                             // group the nodes under new parents
+      count = (level.length + order) / (order + 1);
+      Node[] above = new Node[count];
+      Object[] aboveLowest = new Object[count];
+      for (int c=0, j=0; c < count; c++) {
+        Inner in = newInner();
+        int children = share(level.length, count, c);
+        System.arraycopy(level, j, in.children, 0, children);
+        for (int k=1; k < children; k++)
+          in.keys[k - 1] = lowest[j + k];
+        in.size = children - 1;
+        above[c] = in;
+        aboveLowest[c] = lowest[j];
+        j += children;
+      }
+      level = above;
+      lowest = aboveLowest;
+      levels++;
+    }
+    root = level[0];
+    height = levels;
+    path = new Inner[Math.max(1, 2 * height)];
+    pathIndex = new int[path.length];
+    n = keys.length;
+    modCount++;
+  }
+
+  /** Returns the size of part c when total items are split evenly into count parts. */
+  private static int share(int total, int count, int c) {
+    return total / count + (c < total % count ? 1 : 0);
+  }
+
+  // navigation, all of which works on a (leaf, index) pair
+  /** Returns the entry at index j of leaf, or null if j is past either end. */
+  private Entry<K,V> entryAt(Leaf leaf, int j) {
+    if (j < 0) {                                           // step back to the previous leaf
+      leaf = leaf.prev;
+      if (leaf == null) return null;
+      j = leaf.size - 1;
+    } else if (j >= leaf.size) {                           // or on to the next one
+      leaf = leaf.next;
+      if (leaf == null) return null;
+      j = 0;
+    }
+    return new MapEntry<>(key(leaf, j), value(leaf, j));
+  }
+
+  /** Returns the leftmost leaf. */
+  private Leaf firstLeaf() {
+    Node x = root;
+    while (x instanceof Inner)
+      x = ((Inner) x).children[0];
+    return (Leaf) x;
+  }
+
+  /** Returns the rightmost leaf. */
+  private Leaf lastLeaf() {
+    Node x = root;
+    while (x instanceof Inner)
+      x = ((Inner) x).children[x.size];
+    return (Leaf) x;
+  }
+
+  /**
+   * Returns the entry having the least key (or null if map is empty).
+   * @return entry with least key (or null if map is empty)
+   */
+  @Override
+  public Entry<K,V> firstEntry() {
+    if (n == 0) return null;
+    return entryAt(firstLeaf(), 0);
+  }
+
+  /**
+   * Returns the entry having the greatest key (or null if map is empty).
+   * @return entry with greatest key (or null if map is empty)
+   */
+  @Override
+  public Entry<K,V> lastEntry() {
+    if (n == 0) return null;
+    Leaf leaf = lastLeaf();
+    return entryAt(leaf, leaf.size - 1);
+  }
+
+  /**
+   * Returns the entry with least key greater than or equal to given key
+   * (or null if no such key exists).
+   * @return entry with least key greater than or equal to given (or null if no such entry)
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public Entry<K,V> ceilingEntry(K key) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    return entryAt(leaf, lowerBound(leaf, key));
+  }
+
+  /**
+   * Returns the entry with greatest key less than or equal to given key
+   * (or null if no such key exists).
+   * @return entry with greatest key less than or equal to given (or null if no such entry)
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public Entry<K,V> floorEntry(K key) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    return entryAt(leaf, upperBound(leaf, key) - 1);
+  }
+
+  /**
+   * Returns the entry with greatest key strictly less than given key
+   * (or null if no such key exists).
+   * @return entry with greatest key strictly less than given (or null if no such entry)
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public Entry<K,V> lowerEntry(K key) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    return entryAt(leaf, lowerBound(leaf, key) - 1);
+  }
+
+  /**
+   * Returns the entry with least key strictly greater than given key
+   * (or null if no such key exists).
+   * @return entry with least key strictly greater than given (or null if no such entry)
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  @Override
+  public Entry<K,V> higherEntry(K key) throws IllegalArgumentException {
+    checkKey(key);
+    Leaf leaf = findLeaf(key);
+    return entryAt(leaf, upperBound(leaf, key));
+  }
+
+  // support for iteration
+  //---------------- nested LeafIterator class ----------------
+  /** Walks along the leaves from a starting key up to (not including) a stop key. */
+  private class LeafIterator implements Iterator<Entry<K,V>> {
+    private Leaf leaf;
+    private int j;
+    private final K stop;                                  // null if there is no upper bound
+    private final int expectedModCount = modCount;
+    LeafIterator(K start, K stop) {
+      if (start == null) {
+        leaf = firstLeaf();
+        j = 0;
+      } else {
+        leaf = findLeaf(start);
+        j = lowerBound(leaf, start);
+      }
+      this.stop = stop;
+      skipToLeaf();
+    }
+    /** Moves on to the next leaf if j has run off the end of this one. */
+    private void skipToLeaf() {
+      if (j == leaf.size && leaf.next != null) {           // leaves other than the root are never empty
+        leaf = leaf.next;
+        j = 0;
+      }
+    }
+    public boolean hasNext() {
+      return j < leaf.size && (stop == null || compare(key(leaf, j), stop) < 0);
+    }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (!hasNext()) throw new NoSuchElementException("No further entries");
+      Entry<K,V> answer = new MapEntry<>(key(leaf, j), value(leaf, j));
+      j++;
+      skipToLeaf();
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested LeafIterator class -----------
+
+  /**
+   * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: its iterators throw ConcurrentModificationException
+   * if the map is modified while in use.
+   *
+   * @return iterable collection of the map's entries
+   */
+  @Override
+  public Iterable<Entry<K,V>> entrySet() { return () -> new LeafIterator(null, null); }
+
+  /**
+   * Returns an iterable containing all entries with keys in the range from
+   * <code>fromKey</code> inclusive to <code>toKey</code> exclusive. This is
+   * a live view; each iterator starts with a single search for fromKey and
+   * then walks along the leaves.
+   * @return iterable with keys in desired range
+   * @throws IllegalArgumentException if <code>fromKey</code> or <code>toKey</code> is not compatible with the map
+   */
+  @Override
+  public Iterable<Entry<K,V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+    checkKey(fromKey);
+    checkKey(toKey);
+    return () -> new LeafIterator(fromKey, toKey);
+  }
+
+  /**
+   * Performs the given action on the key and value of each entry, in
+   * increasing order of keys, reading them straight from the leaves.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    int expectedModCount = modCount;
+    for (Leaf leaf = firstLeaf(); leaf != null; leaf = leaf.next)
+      for (int j=0; j < leaf.size; j++) {
+        action.accept(key(leaf, j), value(leaf, j));
+        checkForComodification(expectedModCount);
+      }
+  }
+
+  /** Returns the number of levels of the tree (1 if the root is a leaf). */
+  public int height() { return height + 1; }
+}
@@ -22,18 +22,41 @@
  */
 package net.datastructures;
 
-import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /*
  * Map implementation using hash table with separate chaining.
  *
+ * Each bucket is an UnsortedTableMap while it is small. A bucket that grows
+ * past TREEIFY_THRESHOLD entries, whose keys are all of one Comparable
+ * class, is converted into a red-black tree, so that even a badly
+ * distributed key set costs O(log n) per lookup rather than O(n); once it
+ * shrinks below UNTREEIFY_THRESHOLD it goes back to a table. Tree buckets
+ * rely on the keys' compareTo being consistent with equals, as it is for
+ * String, Integer, and the other standard Comparable types.
+ *
  * @author Michael T. Goodrich
  * @author Roberto Tamassia
  * @author Michael H. Goldwasser
  */
 public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
-  // a fixed capacity array of UnsortedTableMap that serve as buckets
-  private UnsortedTableMap<K,V>[] table;   // initialized within createTable
+  /** A bucket with more entries than this is converted into a tree, if possible. */
+  public static final int TREEIFY_THRESHOLD = 8;
+
+  /** A tree bucket with fewer entries than this is converted back into a table. */
+  public static final int UNTREEIFY_THRESHOLD = 6;
+
+  //---------------- nested TreeBucket class ----------------
+  /** A red-black tree bucket, remembering the one class of all its keys. */
+  private static class TreeBucket<K,V> extends RBTreeMap<K,V> {
+    final Class<?> keyClass;
+    TreeBucket(Class<?> keyClass) { this.keyClass = keyClass; }
+  } //----------- end of nested TreeBucket class -----------
+
+  // a fixed capacity array of buckets, each an UnsortedTableMap or a TreeBucket
+  private Map<K,V>[] table;   // initialized within createTable
 
   // provide same constructors as base class
   /** Creates a hash table with capacity 11 and prime factor 109345121. */
@@ -45,11 +68,25 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
   /** Creates a hash table with the given capacity and prime factor. */
   public ChainHashMap(int cap, int p) { super(cap, p); }
 
+  /**
+   * Creates a hash table with the given capacity, prime factor and maximum
+   * load factor (which may be more than 1, as buckets hold any number).
+   */
+  public ChainHashMap(int cap, int p, double loadFactor) { super(cap, p, loadFactor); }
+
+  /**
+   * Creates a hash table that can hold expectedSize entries, without
+   * resizing, at the given maximum load factor.
+   */
+  public static <K,V> ChainHashMap<K,V> withExpectedSize(int expectedSize, double loadFactor) {
+    return new ChainHashMap<>(capacityFor(expectedSize, loadFactor), DEFAULT_PRIME, loadFactor);
+  }
+
   /** Creates an empty table having length equal to current capacity. */
   @Override
   @SuppressWarnings({"unchecked"})
   protected void createTable() {
-    table = (UnsortedTableMap<K,V>[]) new UnsortedTableMap[capacity];
+    table = (Map<K,V>[]) new Map[capacity];
   }
 
   /**
@@ -61,8 +98,8 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
    */
   @Override
   protected V bucketGet(int h, K k) {
-    UnsortedTableMap<K,V> bucket = table[h];
-    if (bucket == null) return null;
+    Map<K,V> bucket = table[h];
+    if (bucket == null || !fits(bucket, k)) return null;
     return bucket.get(k);
   }
 
@@ -76,12 +113,16 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
    */
   @Override
   protected V bucketPut(int h, K k, V v) {
-    UnsortedTableMap<K,V> bucket = table[h];
+    Map<K,V> bucket = table[h];
     if (bucket == null)
       bucket = table[h] = new UnsortedTableMap<>();
+    else if (!fits(bucket, k))        // k cannot be compared with the tree's keys
+      bucket = table[h] = untreeify(bucket);
     int oldSize = bucket.size();
     V answer = bucket.put(k,v);
     n += (bucket.size() - oldSize);   // size may have increased
+    if (bucket.size() > TREEIFY_THRESHOLD && !(bucket instanceof TreeBucket))
+      table[h] = treeify(bucket);
     return answer;
   }
 
@@ -94,26 +135,126 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
    */
   @Override
   protected V bucketRemove(int h, K k) {
-    UnsortedTableMap<K,V> bucket = table[h];
-    if (bucket == null) return null;
+    Map<K,V> bucket = table[h];
+    if (bucket == null || !fits(bucket, k)) return null;
     int oldSize = bucket.size();
     V answer = bucket.remove(k);
     n -= (oldSize - bucket.size());   // size may have decreased
+    if (bucket.size() < UNTREEIFY_THRESHOLD && bucket instanceof TreeBucket)
+      table[h] = untreeify(bucket);
     return answer;
   }
 
+  /** Returns whether key k may be looked up in the given bucket. */
+  private static <K,V> boolean fits(Map<K,V> bucket, K k) {
+    return !(bucket instanceof TreeBucket) || ((TreeBucket<K,V>) bucket).keyClass == k.getClass();
+  }
+
+  /**
+   * Returns a tree holding the entries of the given table bucket, or the
+   * bucket itself if its keys are not all of the same Comparable class.
+   */
+  private static <K,V> Map<K,V> treeify(Map<K,V> bucket) {
+    Class<?> keyClass = null;
+    for (Entry<K,V> entry : bucket.entrySet()) {
+      Class<?> c = entry.getKey().getClass();
+      if (keyClass == null)
+        keyClass = c;
+      if (c != keyClass || !(entry.getKey() instanceof Comparable))
+        return bucket;
+    }
+    TreeBucket<K,V> tree = new TreeBucket<>(keyClass);
+    for (Entry<K,V> entry : bucket.entrySet())
+      tree.put(entry.getKey(), entry.getValue());
+    return tree;
+  }
+
+  /** Returns a table holding the entries of the given tree bucket. */
+  private static <K,V> Map<K,V> untreeify(Map<K,V> bucket) {
+    UnsortedTableMap<K,V> table = new UnsortedTableMap<>();
+    for (Entry<K,V> entry : bucket.entrySet())
+      table.put(entry.getKey(), entry.getValue());
+    return table;
+  }
+
+  /**
+   * Returns the number of buckets currently stored as trees.
+   * @return number of tree buckets
+   */
+  public int treeBucketCount() {
+    int count = 0;
+    for (int h=0; h < capacity; h++)
+      if (table[h] instanceof TreeBucket)
+        count++;
+    return count;
+  }
+
+  /**
+   * Returns any one entry stored in the bucket at index j, or null if that
+   * bucket is empty.
+   * @param j  the index of the bucket
+   * @return   an entry of the bucket (or null, if it is empty)
+   */
+  @Override
+  protected Entry<K,V> bucketEntry(int j) {
+    Map<K,V> bucket = table[j];
+    if (bucket == null || bucket.isEmpty()) return null;
+    return bucket.entrySet().iterator().next();
+  }
+
+  //---------------- nested EntryIterator class ----------------
+  /** Walks the buckets in turn, failing fast if the map is modified. */
+  private class EntryIterator implements Iterator<Entry<K,V>> {
+    private int h = 0;                            // next bucket to look at
+    private Iterator<Entry<K,V>> bucket = null;   // iterator of the current bucket
+    private final int expectedModCount = modCount;
+    EntryIterator() { skipEmpty(); }
+    private void skipEmpty() {
+      while ((bucket == null || !bucket.hasNext()) && h < capacity) {
+        Map<K,V> next = table[h++];
+        bucket = (next == null ? null : next.entrySet().iterator());
+      }
+    }
+    public boolean hasNext() { return bucket != null && bucket.hasNext(); }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (!hasNext()) throw new NoSuchElementException("No further entries");
+      Entry<K,V> answer = bucket.next();
+      skipEmpty();
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested EntryIterator class -----------
+
+  //---------------- nested EntryIterable class ----------------
+  private class EntryIterable implements Iterable<Entry<K,V>> {
+    public Iterator<Entry<K,V>> iterator() { return withOldEntries(new EntryIterator()); }
+  } //----------- end of nested EntryIterable class -----------
+
   /**
    * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: nothing is copied, and its iterators throw
+   * ConcurrentModificationException if the map is modified while in use.
    *
    * @return iterable collection of the map's entries
    */
   @Override
-  public Iterable<Entry<K,V>> entrySet() {
-    ArrayList<Entry<K,V>> buffer = new ArrayList<>();
+  public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+
+  /**
+   * Performs the given action on the key and value of each entry, bucket
+   * by bucket.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    forEachOld(action);                           // entries a resize has yet to move
+    int expectedModCount = modCount;
     for (int h=0; h < capacity; h++)
-      if (table[h] != null)
-        for (Entry<K,V> entry : table[h].entrySet())
-          buffer.add(entry);
-    return buffer;
+      if (table[h] != null) {
+        table[h].forEach(action);
+        checkForComodification(expectedModCount);
+      }
   }
 }
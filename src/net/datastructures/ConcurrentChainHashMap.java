@@ -0,0 +1,297 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.datastructures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Thread-safe map implementation using hash tables with separate chaining.
+ *
+ * The map is split into a fixed number of segments, each a small chained
+ * hash table of its own, and a key's (scrambled) hash code picks both its
+ * segment and its bucket within that segment. Updates lock only their
+ * segment, and a segment grows by itself while holding its own lock, so
+ * threads working on different segments never wait for each other.
+ *
+ * Searches take no locks at all. Bucket heads are read from an
+ * AtomicReferenceArray and links and values are volatile, so a search sees
+ * every update that finished before it began. Nodes are only added at the
+ * head of a chain or unlinked from it, and growing a segment copies its
+ * nodes into a new table instead of relinking them, so a search running
+ * at the same time always walks a valid chain. The iterators of entrySet()
+ * take no locks either and copy nothing: they walk the segments and their
+ * chains in place, so they are weakly consistent, never throwing
+ * ConcurrentModificationException and seeing some, all, or none of the
+ * updates made while they run.
+ */
+public class ConcurrentChainHashMap<K,V> extends AbstractMap<K,V> {
+  /** Number of segments used when none is given. */
+  public static final int DEFAULT_SEGMENTS = 64;
+
+  /** Maximum load factor of each segment when none is given. */
+  public static final double DEFAULT_LOAD_FACTOR = 0.5;
+
+  //---------------- nested Node class ----------------
+  /** A chain node, which also serves as the map's entry. */
+  private static class Node<K,V> implements Entry<K,V> {
+    final int hash;
+    final K key;
+    volatile V value;
+    volatile Node<K,V> next;
+
+    Node(int h, K k, V v, Node<K,V> n) {
+      hash = h;
+      key = k;
+      value = v;
+      next = n;
+    }
+
+    public K getKey() { return key; }
+    public V getValue() { return value; }
+
+    /** Returns string representation (for debugging only) */
+    public String toString() { return "<" + key + ", " + value + ">"; }
+  } //----------- end of nested Node class -----------
+
+  //---------------- nested Segment class ----------------
+  /** One independently locked part of the map. Updates synchronize on it. */
+  private static class Segment<K,V> {
+    volatile AtomicReferenceArray<Node<K,V>> table;   // replaced when the segment grows
+    volatile int count = 0;                           // only written while locked
+    final double loadFactor;                          // grow when count exceeds capacity * loadFactor
+
+    Segment(int cap, double loadFactor) {
+      table = new AtomicReferenceArray<>(cap);
+      this.loadFactor = loadFactor;
+    }
+
+    /** Returns the node with key k (whose hash is h), or null. Takes no lock. */
+    Node<K,V> find(int h, K k) {
+      AtomicReferenceArray<Node<K,V>> tab = table;
+      for (Node<K,V> e = tab.get(h & (tab.length() - 1)); e != null; e = e.next)
+        if (e.hash == h && e.key.equals(k))
+          return e;
+      return null;
+    }
+
+    synchronized V put(int h, K k, V v) {
+      Node<K,V> e = find(h, k);
+      if (e != null) {                                // this key has an existing entry
+        V old = e.value;
+        e.value = v;
+        return old;
+      }
+      AtomicReferenceArray<Node<K,V>> tab = table;
+      int j = h & (tab.length() - 1);
+      tab.set(j, new Node<>(h, k, v, tab.get(j)));   // publish the new head
+      count = count + 1;
+      if (count > tab.length() * loadFactor)          // keep the load factor in bounds
+        grow();
+      return null;
+    }
+
+    synchronized V remove(int h, K k) {
+      AtomicReferenceArray<Node<K,V>> tab = table;
+      int j = h & (tab.length() - 1);
+      Node<K,V> prev = null;
+      for (Node<K,V> e = tab.get(j); e != null; prev = e, e = e.next)
+        if (e.hash == h && e.key.equals(k)) {
+          if (prev == null)
+            tab.set(j, e.next);
+          else
+            prev.next = e.next;                       // e still leads on, for searches in it
+          count = count - 1;
+          return e.value;
+        }
+      return null;
+    }
+
+    /** Copies every node into a table twice as big, then publishes it. */
+    private void grow() {
+      AtomicReferenceArray<Node<K,V>> tab = table;
+      AtomicReferenceArray<Node<K,V>> bigger = new AtomicReferenceArray<>(2 * tab.length());
+      int mask = bigger.length() - 1;
+      for (int j=0; j < tab.length(); j++)
+        for (Node<K,V> e = tab.get(j); e != null; e = e.next)
+          bigger.set(e.hash & mask, new Node<>(e.hash, e.key, e.value, bigger.get(e.hash & mask)));
+      table = bigger;
+    }
+  } //----------- end of nested Segment class -----------
+
+  private final Segment<K,V>[] segments;
+  private final int shift;             // the top bits of a hash select the segment
+  private final double loadFactor;
+
+  /** Creates a map with 64 segments, each with capacity 16, and load factor 0.5. */
+  public ConcurrentChainHashMap() { this(DEFAULT_SEGMENTS, 16 * DEFAULT_SEGMENTS); }
+
+  /**
+   * Creates a map with the given number of segments and total capacity
+   * (both rounded up to powers of two), and load factor 0.5.
+   */
+  public ConcurrentChainHashMap(int numSegments, int cap) {
+    this(numSegments, cap, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Creates a map with the given number of segments and total capacity
+   * (both rounded up to powers of two). More segments let more threads
+   * update the map at once. Each segment doubles its table when its number
+   * of entries exceeds the given load factor times its capacity.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ConcurrentChainHashMap(int numSegments, int cap, double loadFactor) {
+    if (numSegments < 1 || numSegments > (1 << 16))
+      throw new IllegalArgumentException("Number of segments must be between 1 and 65536");
+    if (!(loadFactor > 0))
+      throw new IllegalArgumentException("Load factor must be positive");
+    this.loadFactor = loadFactor;
+    int s = powerOfTwo(numSegments);
+    shift = 32 - Integer.numberOfTrailingZeros(s);
+    segments = (Segment<K,V>[]) new Segment[s];       // safe cast
+    int segmentCap = powerOfTwo(Math.max(2, (cap + s - 1) / s));
+    for (int j=0; j < s; j++)
+      segments[j] = new Segment<>(segmentCap, loadFactor);
+  }
+
+  /** Returns the maximum load factor of each segment. */
+  public double getLoadFactor() { return loadFactor; }
+
+  /** Returns the smallest power of two that is at least cap. */
+  private static int powerOfTwo(int cap) {
+    if (cap > (1 << 30)) throw new IllegalArgumentException("Capacity too large");
+    return (cap <= 1 ? 1 : Integer.highestOneBit(cap - 1) << 1);
+  }
+
+  /** Hash function applying the MurmurHash3 finalizer to the default hash code. */
+  private static int hashValue(Object key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /** Returns the segment for hash h. */
+  private Segment<K,V> segmentFor(int h) {
+    return (shift == 32 ? segments[0] : segments[h >>> shift]);   // (h >>> 32 would be h)
+  }
+
+  /**
+   * Returns the number of entries in the map. While other threads are
+   * updating it, this is only an estimate.
+   * @return number of entries in the map
+   */
+  @Override
+  public int size() {
+    long total = 0;
+    for (Segment<K,V> segment : segments)
+      total += segment.count;
+    return (int) Math.min(total, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the value associated with the specified key, or null if no such
+   * entry exists. Takes no locks.
+   * @param key  the key whose associated value is to be returned
+   * @return the associated value, or null if no such entry exists
+   */
+  @Override
+  public V get(K key) {
+    int h = hashValue(key);
+    Node<K,V> e = segmentFor(h).find(h, key);
+    return (e == null ? null : e.value);
+  }
+
+  /**
+   * Associates the given value with the given key. If an entry with
+   * the key was already in the map, this replaced the previous value
+   * with the new one and returns the old value. Otherwise, a new
+   * entry is added and null is returned.
+   * @param key    key with which the specified value is to be associated
+   * @param value  value to be associated with the specified key
+   * @return the previous value associated with the key (or null, if no such entry)
+   */
+  @Override
+  public V put(K key, V value) {
+    int h = hashValue(key);
+    return segmentFor(h).put(h, key, value);
+  }
+
+  /**
+   * Removes the entry with the specified key, if present, and returns
+   * its associated value. Otherwise does nothing and returns null.
+   * @param key  the key whose entry is to be removed from the map
+   * @return the previous value associated with the removed key, or null if no such entry exists
+   */
+  @Override
+  public V remove(K key) {
+    int h = hashValue(key);
+    return segmentFor(h).remove(h, key);
+  }
+
+  //---------------- nested EntryIterator class ----------------
+  /**
+   * Walks the segments in turn, and the chains of each bucket of the
+   * segment's table as it was when the walk reached that segment.
+   */
+  private class EntryIterator implements Iterator<Entry<K,V>> {
+    private int s = 0;                            // next segment to look at
+    private AtomicReferenceArray<Node<K,V>> tab = null;   // table of the current segment
+    private int j = 0;                            // next bucket of tab to look at
+    private Node<K,V> next;                       // next node to return (or null if done)
+    EntryIterator() { advance(null); }
+    /** Sets next to the node after e (or to the first node, if e is null). */
+    private void advance(Node<K,V> e) {
+      next = (e == null ? null : e.next);
+      while (next == null) {
+        if (tab == null || j == tab.length()) {   // on to the next segment
+          if (s == segments.length) return;
+          tab = segments[s++].table;
+          j = 0;
+        } else
+          next = tab.get(j++);
+      }
+    }
+    public boolean hasNext() { return next != null; }
+    public Entry<K,V> next() {
+      if (next == null) throw new NoSuchElementException("No further entries");
+      Node<K,V> answer = next;
+      advance(answer);
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested EntryIterator class -----------
+
+  /**
+   * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view, and its iterators take no locks, so they may or
+   * may not reflect updates made while they run.
+   *
+   * @return iterable collection of the map's entries
+   */
+  @Override
+  public Iterable<Entry<K,V>> entrySet() { return () -> new EntryIterator(); }
+}
@@ -174,6 +174,7 @@ public class LinkedBinaryTree<E> extends AbstractBinaryTree<E> {
     if (!isEmpty()) throw new IllegalStateException("Tree is not empty");
     root = createNode(e, null, null, null);
     size = 1;
+    modCount++;
     return root;
   }
 
@@ -194,6 +195,7 @@ public class LinkedBinaryTree<E> extends AbstractBinaryTree<E> {
     Node<E> child = createNode(e, parent, null, null);
     parent.setLeft(child);
     size++;
+    modCount++;
     return child;
   }
 
@@ -214,6 +216,7 @@ public class LinkedBinaryTree<E> extends AbstractBinaryTree<E> {
     Node<E> child = createNode(e, parent, null, null);
     parent.setRight(child);
     size++;
+    modCount++;
     return child;
   }
 
@@ -247,17 +250,20 @@ public class LinkedBinaryTree<E> extends AbstractBinaryTree<E> {
     Node<E> node = validate(p);
     if (isInternal(p)) throw new IllegalArgumentException("p must be a leaf");
     size += t1.size() + t2.size();
+    modCount++;
     if (!t1.isEmpty()) {                  // attach t1 as left subtree of node
       t1.root.setParent(node);
       node.setLeft(t1.root);
       t1.root = null;
       t1.size = 0;
+      t1.modCount++;
     }
     if (!t2.isEmpty()) {                  // attach t2 as right subtree of node
       t2.root.setParent(node);
       node.setRight(t2.root);
       t2.root = null;
       t2.size = 0;
+      t2.modCount++;
     }
   }
 
@@ -286,6 +292,7 @@ public class LinkedBinaryTree<E> extends AbstractBinaryTree<E> {
         parent.setRight(child);
     }
     size--;
+    modCount++;
     E temp = node.getElement();
     node.setElement(null);                // help garbage collection
     node.setLeft(null);
@@ -0,0 +1,247 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.datastructures;
+
+import java.util.Arrays;
+
+/*
+ * Map from long keys to long values using a hash table with linear probing.
+ *
+ * Unlike the generic maps, nothing is boxed and there are no entry objects:
+ * keys and values sit in two parallel long arrays, whose length is a power
+ * of two, so an entry costs 16 bytes divided by the load factor. A key of 0
+ * in the key array marks an empty slot. The key 0 itself is still allowed,
+ * because its entry is kept in separate fields rather than in the arrays,
+ * so no key value is given up as a sentinel. Removal shifts later entries
+ * of the cluster back into the gap, as in MaskedProbeHashMap.
+ *
+ * Entries are visited without allocating anything through slot numbers:
+ *
+ *   for (int s = map.firstSlot(); s != LongLongHashMap.END; s = map.nextSlot(s))
+ *     use(map.keyAt(s), map.valueAt(s));
+ *
+ * The slot numbers are only valid until the map is next changed (other
+ * than by setValueAt).
+ */
+public class LongLongHashMap {
+  /** Slot number meaning "no more entries". */
+  public static final int END = -1;
+
+  private long[] keys;                  // keys[j] == 0 means slot j is empty
+  private long[] values;
+  private int mask;                     // keys.length - 1
+  private int n = 0;                    // number of entries in the arrays
+  private boolean hasZeroKey = false;   // whether key 0 is in the map
+  private long zeroValue;               // its value, if so
+  private final double loadFactor;
+
+  /** Creates a map with the default capacity and a load factor of 0.5. */
+  public LongLongHashMap() { this(16); }
+
+  /** Creates a map that can hold expectedSize entries without resizing, at load factor 0.5. */
+  public LongLongHashMap(int expectedSize) { this(expectedSize, 0.5); }
+
+  /**
+   * Creates a map that can hold expectedSize entries without resizing, at
+   * the given maximum load factor (which must be less than 1).
+   */
+  public LongLongHashMap(int expectedSize, double loadFactor) {
+    if (!(loadFactor > 0 && loadFactor < 1))
+      throw new IllegalArgumentException("Load factor must be between 0 and 1");
+    if (expectedSize < 0)
+      throw new IllegalArgumentException("Expected size must be nonnegative");
+    this.loadFactor = loadFactor;
+    allocate(powerOfTwo((long) Math.ceil(expectedSize / loadFactor) + 1));
+  }
+
+  /** Returns the smallest power of two that is at least cap (and at least 4). */
+  private static int powerOfTwo(long cap) {
+    if (cap <= 4) return 4;
+    if (cap > (1 << 30)) throw new IllegalArgumentException("Capacity too large");
+    return Integer.highestOneBit((int) cap - 1) << 1;
+  }
+
+  /** Replaces the arrays with empty ones of the given length. */
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  /** Hash function applying the MurmurHash3 64-bit finalizer to the key. */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Returns the index of the entry with nonzero key k, or the index of the
+   * empty slot where such an entry would go.
+   */
+  private int findSlot(long k) {
+    int j = (int) mix(k) & mask;
+    while (keys[j] != 0 && keys[j] != k)
+      j = (j+1) & mask;                         // keep looking (cyclically)
+    return j;                                   // a slot is always empty, so we stop
+  }
+
+  /** Returns the number of entries in the map. */
+  public int size() { return n + (hasZeroKey ? 1 : 0); }
+
+  /** Tests whether the map is empty. */
+  public boolean isEmpty() { return size() == 0; }
+
+  /** Returns whether the map has an entry with the given key. */
+  public boolean containsKey(long key) {
+    return (key == 0 ? hasZeroKey : keys[findSlot(key)] != 0);
+  }
+
+  /**
+   * Returns the value associated with the given key, or defaultValue if
+   * the map has no such entry.
+   */
+  public long get(long key, long defaultValue) {
+    if (key == 0)
+      return (hasZeroKey ? zeroValue : defaultValue);
+    int j = findSlot(key);
+    return (keys[j] == 0 ? defaultValue : values[j]);
+  }
+
+  /**
+   * Associates the given value with the given key, replacing any previous
+   * value. Returns true if a new entry was added.
+   */
+  public boolean put(long key, long value) {
+    if (key == 0) {
+      boolean added = !hasZeroKey;
+      hasZeroKey = true;
+      zeroValue = value;
+      return added;
+    }
+    int j = findSlot(key);
+    if (keys[j] != 0) {                         // this key has an existing entry
+      values[j] = value;
+      return false;
+    }
+    keys[j] = key;
+    values[j] = value;
+    n++;
+    if (n > loadFactor * keys.length)           // keep load factor <= the maximum
+      resize(2 * keys.length);
+    return true;
+  }
+
+  /**
+   * Adds delta to the value associated with the given key (treating a
+   * missing entry as 0), and returns the new value.
+   */
+  public long addTo(long key, long delta) {
+    if (key != 0) {
+      int j = findSlot(key);
+      if (keys[j] != 0)                         // updated in place, with a single probe
+        return values[j] += delta;
+    }
+    long sum = get(key, 0) + delta;
+    put(key, sum);
+    return sum;
+  }
+
+  /** Removes the entry with the given key, if any. Returns true if one was removed. */
+  public boolean remove(long key) {
+    if (key == 0) {
+      boolean removed = hasZeroKey;
+      hasZeroKey = false;
+      return removed;
+    }
+    int j = findSlot(key);
+    if (keys[j] == 0) return false;             // nothing to remove
+    closeGap(j);
+    n--;
+    return true;
+  }
+
+  /**
+   * Empties slot j, then moves later entries of the cluster back to fill
+   * the gap wherever that keeps them reachable from their home slots.
+   */
+  private void closeGap(int j) {
+    for (int i = (j+1) & mask; keys[i] != 0; i = (i+1) & mask) {
+      int home = (int) mix(keys[i]) & mask;
+      if (((i - home) & mask) >= ((i - j) & mask)) {   // j lies between home and i
+        keys[j] = keys[i];
+        values[j] = values[i];
+        j = i;
+      }
+    }
+    keys[j] = 0;
+  }
+
+  /** Removes all entries, keeping the current capacity. */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    n = 0;
+    hasZeroKey = false;
+  }
+
+  /** Moves every entry into new arrays of the given length. */
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    allocate(capacity);
+    for (int i=0; i < oldKeys.length; i++)
+      if (oldKeys[i] != 0) {
+        int j = findSlot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+  }
+
+  /** Returns the first occupied slot, or END if the map is empty. */
+  public int firstSlot() { return nextSlot(-1); }
+
+  /** Returns the occupied slot after slot s, or END if there is none. */
+  public int nextSlot(int s) {
+    for (int j = s + 1; j < keys.length; j++)
+      if (keys[j] != 0)
+        return j;
+    if (s < keys.length && hasZeroKey)          // key 0 comes last, in slot keys.length
+      return keys.length;
+    return END;
+  }
+
+  /** Returns the key of the entry in slot s. */
+  public long keyAt(int s) { return (s == keys.length ? 0 : keys[s]); }
+
+  /** Returns the value of the entry in slot s. */
+  public long valueAt(int s) { return (s == keys.length ? zeroValue : values[s]); }
+
+  /** Replaces the value of the entry in slot s. */
+  public void setValueAt(int s, long value) {
+    if (s == keys.length)
+      zeroValue = value;
+    else
+      values[s] = value;
+  }
+}
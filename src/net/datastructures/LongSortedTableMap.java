@@ -0,0 +1,275 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.datastructures;
+
+import java.util.Arrays;
+
+/*
+ * Sorted map from long keys (such as timestamps) to objects, kept as a
+ * sorted table in parallel arrays: keys in a long[] and values in an
+ * Object[]. Nothing is boxed and there are no entry objects, and a search
+ * compares primitive keys directly instead of calling a comparator.
+ *
+ * Searches are iterative. The binary search halves its range with a
+ * conditional move rather than a branch: on an array of primitives the
+ * keys sit next to each other, so (unlike the pointer-chasing walk of
+ * FrozenBinarySearchTree) there is little to gain from guessing which way
+ * to go. By default the search first interpolates, guessing where the key
+ * lies from the keys at the ends of the range, which takes O(log log n)
+ * probes when keys are spread evenly; it falls back to binary steps if a
+ * guess does not at least halve the range, so it is never worse than
+ * O(log n).
+ *
+ * put and remove shift the later entries, so they run in O(n) time except
+ * at the end of the table; adding keys in increasing order (as timestamps
+ * usually arrive) takes O(1) amortized time each. A batch of keys is best
+ * added with putAllSorted, which merges it in O(n + m) time.
+ *
+ * Entries are visited by index, from 0 to size()-1 in increasing order of
+ * keys, and the ceilingIndex and floorIndex methods give the index where
+ * a range starts or ends:
+ *
+ *   for (int j = map.ceilingIndex(from); j < map.size() && map.keyAt(j) < to; j++)
+ *     use(map.keyAt(j), map.valueAt(j));
+ *
+ * The indices are only valid until the map is next changed (other than by
+ * setValueAt).
+ */
+public class LongSortedTableMap<V> {
+  /** Index meaning "no such entry". */
+  public static final int NONE = -1;
+
+  /** Ranges at most this long are searched by binary search alone. */
+  private static final int INTERPOLATION_CUTOFF = 16;
+
+  private long[] keys;                  // keys[0..n-1] in increasing order
+  private Object[] values;
+  private int n = 0;                    // number of entries
+  private final boolean interpolate;    // whether searches begin by interpolating
+
+  /** Creates an empty map that searches by interpolation. */
+  public LongSortedTableMap() { this(true); }
+
+  /**
+   * Creates an empty map that searches by interpolation if interpolate is
+   * true, or by binary search alone otherwise (better when keys are far
+   * from evenly spread).
+   */
+  public LongSortedTableMap(boolean interpolate) {
+    this.interpolate = interpolate;
+    keys = new long[16];
+    values = new Object[16];
+  }
+
+  /** Makes room for at least capacity entries. */
+  private void ensureCapacity(int capacity) {
+    if (capacity > keys.length) {
+      int length = (int) Math.min(Math.max(capacity, 2L * keys.length), Integer.MAX_VALUE - 8);
+      keys = Arrays.copyOf(keys, length);
+      values = Arrays.copyOf(values, length);
+    }
+  }
+
+  /**
+   * Returns the first index j in [low, high) with keys[j] >= key (or high
+   * if there is none), by binary search.
+   */
+  private int binarySearch(long key, int low, int high) {
+    int base = low, len = high - low;           // the answer is in [base, base+len]
+    while (len > 1) {
+      int half = len >>> 1;
+      base = (keys[base + half - 1] < key ? base + half : base);  // no branch needed
+      len -= half;
+    }
+    return (len == 1 && keys[base] < key ? base + 1 : base);
+  }
+
+  /**
+   * Returns the first index j in [0, n) with keys[j] >= key (or n if there
+   * is none), narrowing the range by interpolation while it is long.
+   */
+  private int interpolationSearch(long key) {
+    int low = 0, high = n;                      // the answer is in [low, high]
+    while (high - low > INTERPOLATION_CUTOFF) {
+      long first = keys[low], last = keys[high - 1];
+      if (key <= first) return low;
+      if (key > last) return high;
+      // first < key <= last, so the guess lands in [low, high-1)
+      int guess = low + (int) (((double) key - first) / ((double) last - first) * (high - 1 - low));
+      guess = Math.min(Math.max(guess, low), high - 2);
+      int oldLength = high - low;
+      if (keys[guess] < key) low = guess + 1;
+      else high = guess;
+      if (2 * (high - low) > oldLength) {       // a poor guess, so take a binary step as well
+        int mid = (low + high) >>> 1;
+        if (mid < high && keys[mid] < key) low = mid + 1;
+        else high = mid;
+      }
+    }
+    return binarySearch(key, low, high);
+  }
+
+  /** Returns the first index j with keys[j] >= key (or size() if there is none). */
+  public int ceilingIndex(long key) {
+    return (interpolate ? interpolationSearch(key) : binarySearch(key, 0, n));
+  }
+
+  /** Returns the first index j with keys[j] > key (or size() if there is none). */
+  public int higherIndex(long key) {
+    return (key == Long.MAX_VALUE ? n : ceilingIndex(key + 1));
+  }
+
+  /** Returns the last index j with keys[j] <= key (or NONE if there is none). */
+  public int floorIndex(long key) {
+    int j = higherIndex(key) - 1;
+    return (j < 0 ? NONE : j);
+  }
+
+  /** Returns the last index j with keys[j] < key (or NONE if there is none). */
+  public int lowerIndex(long key) {
+    int j = ceilingIndex(key) - 1;
+    return (j < 0 ? NONE : j);
+  }
+
+  /** Returns the index of the entry with the given key (or NONE if there is none). */
+  public int indexOf(long key) {
+    int j = ceilingIndex(key);
+    return (j < n && keys[j] == key ? j : NONE);
+  }
+
+  /** Returns the number of entries in the map. */
+  public int size() { return n; }
+
+  /** Tests whether the map is empty. */
+  public boolean isEmpty() { return n == 0; }
+
+  /** Returns whether the map has an entry with the given key. */
+  public boolean containsKey(long key) { return indexOf(key) != NONE; }
+
+  /** Returns the value for the given key (or null if there is none). */
+  public V get(long key) {
+    int j = indexOf(key);
+    return (j == NONE ? null : valueAt(j));
+  }
+
+  /**
+   * Associates the given value with the given key, returning the previous
+   * value for the key (or null if the key is new).
+   */
+  public V put(long key, V value) {
+    int j = (n > 0 && keys[n - 1] < key ? n : ceilingIndex(key));   // appending needs no search
+    if (j < n && keys[j] == key) {              // match exists
+      V old = valueAt(j);
+      values[j] = value;
+      return old;
+    }
+    ensureCapacity(n + 1);
+    System.arraycopy(keys, j, keys, j + 1, n - j);
+    System.arraycopy(values, j, values, j + 1, n - j);
+    keys[j] = key;
+    values[j] = value;
+    n++;
+    return null;
+  }
+
+  /** Removes the entry with the given key, returning its value (or null if there is none). */
+  public V remove(long key) {
+    int j = indexOf(key);
+    if (j == NONE) return null;
+    V old = valueAt(j);
+    System.arraycopy(keys, j + 1, keys, j, n - j - 1);
+    System.arraycopy(values, j + 1, values, j, n - j - 1);
+    values[--n] = null;                         // help garbage collection
+    return old;
+  }
+
+  /**
+   * Adds the given entries, whose keys must be in strictly increasing
+   * order, replacing the values of any keys already in the map. The two
+   * sorted sequences are merged in place, from the back, in O(n + m) time.
+   * @param newKeys    the keys, in increasing order
+   * @param newValues  the values, one per key
+   * @throws IllegalArgumentException if the keys are not strictly increasing
+   */
+  public void putAllSorted(long[] newKeys, V[] newValues) throws IllegalArgumentException {
+    int m = newKeys.length;
+    if (newValues.length != m)
+      throw new IllegalArgumentException("Need one value per key");
+    for (int k=1; k < m; k++)
+      if (newKeys[k - 1] >= newKeys[k])
+        throw new IllegalArgumentException("Keys must be strictly increasing");
+    int total = n + m;                          // less one for each key already present
+    for (int i=0, k=0; i < n && k < m; )
+      if (keys[i] < newKeys[k]) i++;
+      else if (keys[i] > newKeys[k]) k++;
+      else { total--; i++; k++; }
+    ensureCapacity(total);
+    int i = n - 1, k = m - 1;
+    for (int w = total - 1; k >= 0; w--) {      // once the batch is used up, the rest is in place
+      if (i >= 0 && keys[i] > newKeys[k]) {
+        keys[w] = keys[i];
+        values[w] = values[i--];
+      } else {
+        if (i >= 0 && keys[i] == newKeys[k]) i--;   // the new value replaces the old
+        keys[w] = newKeys[k];
+        values[w] = newValues[k--];
+      }
+    }
+    n = total;
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    Arrays.fill(values, 0, n, null);
+    n = 0;
+  }
+
+  /** Returns the key at index j. */
+  public long keyAt(int j) {
+    checkIndex(j);
+    return keys[j];
+  }
+
+  /** Returns the value at index j. */
+  @SuppressWarnings({"unchecked"})
+  public V valueAt(int j) {
+    checkIndex(j);
+    return (V) values[j];
+  }
+
+  /** Replaces the value at index j. */
+  public void setValueAt(int j, V value) {
+    checkIndex(j);
+    values[j] = value;
+  }
+
+  /** Returns the least key (the map must not be empty). */
+  public long firstKey() { return keyAt(0); }
+
+  /** Returns the greatest key (the map must not be empty). */
+  public long lastKey() { return keyAt(n - 1); }
+
+  /** Checks whether j is the index of an entry. */
+  private void checkIndex(int j) throws IndexOutOfBoundsException {
+    if (j < 0 || j >= n)
+      throw new IndexOutOfBoundsException("Illegal index: " + j);
+  }
+}
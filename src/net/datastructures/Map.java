@@ -22,6 +22,8 @@
  */
 package net.datastructures;
 
+import java.util.function.BiConsumer;
+
 /**
  * An interface for an associative map which binds a key uniquely to a value.
  * This interface is a simplified version of java.util.Map.
@@ -92,4 +94,15 @@ public interface Map<K,V> {
    * @return iterable collection of the map's entries
    */
   Iterable<Entry<K,V>> entrySet();
+
+  /**
+   * Performs the given action on the key and value of each entry of the map.
+   * Implementations may override this to visit their entries without
+   * iterators or Entry objects.
+   * @param action  the action to be performed on each key and value
+   */
+  default void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Entry<K,V> e : entrySet())
+      action.accept(e.getKey(), e.getValue());
+  }
 }
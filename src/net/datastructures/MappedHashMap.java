@@ -0,0 +1,491 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/*
+ * Map implementation using a hash table with linear probing that lives in a
+ * memory-mapped file, for keys and values of a fixed number of bytes.
+ *
+ * The table is the file: a small header followed by one slot per bucket,
+ * each slot being a status byte and the encoded key and value. Nothing of
+ * the table is kept on the Java heap, so it adds nothing to the work of
+ * the garbage collector, and reopening a map only maps the file (the
+ * operating system reads pages in as they are touched), so it takes the
+ * same few milliseconds for any size. Hash values are computed from the
+ * encoded bytes of a key, never from hashCode, so they are the same in
+ * every run.
+ *
+ * Changes reach the file whenever the operating system writes the pages
+ * back; flush() forces them out. Each put or remove sets a flag in the
+ * header before it touches the table and clears it once the table is
+ * consistent again, so if the process dies in the middle of one, the next
+ * open sees the flag and rebuilds the table from the entries in its slots
+ * (an entry caught halfway through being moved is kept once, but a value
+ * caught halfway through being replaced may be left garbled). Growing the
+ * table writes a new file next to the old one and then renames it over the
+ * old one. None of this controls the order in which the operating system
+ * writes pages back, so after a crash of the whole machine the file is only
+ * known to be consistent if the map was not changed after its last flush()
+ * or close().
+ *
+ * The old file is still mapped when the new one is renamed over it, and
+ * Windows does not allow that, so there the table cannot grow: give an
+ * expectedSize large enough for all the entries. The map is not safe for
+ * use by several threads (or several processes) at once.
+ */
+public class MappedHashMap<K,V> extends AbstractMap<K,V> implements Closeable {
+
+  //---------------- nested Codec interface ----------------
+  /** Converts values of type T to and from a fixed number of bytes. */
+  public interface Codec<T> {
+    /** Returns the number of bytes of every encoded value. */
+    int size();
+
+    /** Writes the value at the current position of the buffer. */
+    void write(ByteBuffer buffer, T value);
+
+    /** Reads a value from the current position of the buffer. */
+    T read(ByteBuffer buffer);
+  } //----------- end of nested Codec interface -----------
+
+  /** Codec for Long keys or values (8 bytes). */
+  public static final Codec<Long> LONG = new Codec<Long>() {
+    public int size() { return Long.BYTES; }
+    public void write(ByteBuffer buffer, Long value) { buffer.putLong(value); }
+    public Long read(ByteBuffer buffer) { return buffer.getLong(); }
+  };
+
+  /** Codec for Integer keys or values (4 bytes). */
+  public static final Codec<Integer> INT = new Codec<Integer>() {
+    public int size() { return Integer.BYTES; }
+    public void write(ByteBuffer buffer, Integer value) { buffer.putInt(value); }
+    public Integer read(ByteBuffer buffer) { return buffer.getInt(); }
+  };
+
+  private static final long MAGIC = 0x4d41505045444d50L;   // "MAPPEDMP"
+  private static final int HEADER = 64;                    // bytes before the first slot
+  private static final int CHUNK = 1 << 30;                // most bytes mapped by one buffer
+  // header: magic (0), key size (8), value size (12), capacity (16), size (20), dirty flag (24)
+
+  //---------------- nested Table class ----------------
+  /**
+   * One table file, mapped in chunks of at most 1 GB (the most a single
+   * buffer can hold), none of which splits a slot.
+   */
+  private static class Table {
+    final FileChannel channel;
+    final MappedByteBuffer header;
+    final MappedByteBuffer[] chunks;
+    final int capacity, slotSize, slotsPerChunk;
+
+    /** Maps the given file, which has (or is to be given) this many slots. */
+    Table(Path file, int keySize, int valueSize, int capacity) throws IOException {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                 StandardOpenOption.WRITE);
+      this.capacity = capacity;
+      slotSize = 1 + keySize + valueSize;
+      slotsPerChunk = CHUNK / slotSize;
+      header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+      chunks = new MappedByteBuffer[(capacity + slotsPerChunk - 1) / slotsPerChunk];
+      for (int c=0; c < chunks.length; c++) {
+        int slots = Math.min(slotsPerChunk, capacity - c * slotsPerChunk);
+        chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                HEADER + (long) c * slotsPerChunk * slotSize, (long) slots * slotSize);
+      }
+    }
+
+    /** Returns the buffer holding slot j. */
+    MappedByteBuffer chunk(int j) { return chunks[j / slotsPerChunk]; }
+
+    /** Returns the index of slot j within its buffer. */
+    int offset(int j) { return (j % slotsPerChunk) * slotSize; }
+
+    boolean isEmpty(int j) { return chunk(j).get(offset(j)) == 0; }
+
+    /** Copies the bytes of slot j after its status byte into dst. */
+    void read(int j, byte[] dst) { chunk(j).get(offset(j) + 1, dst); }
+
+    /** Fills slot j with the given key and value bytes. */
+    void write(int j, byte[] key, byte[] value) {
+      MappedByteBuffer buffer = chunk(j);
+      int k = offset(j);
+      buffer.put(k + 1, key);
+      buffer.put(k + 1 + key.length, value);
+      buffer.put(k, (byte) 1);                    // mark it full only once it is complete
+    }
+
+    void clear(int j) { chunk(j).put(offset(j), (byte) 0); }
+
+    void flush() {
+      header.force();
+      for (MappedByteBuffer buffer : chunks)
+        buffer.force();
+    }
+  } //----------- end of nested Table class -----------
+
+  private final Path file;
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private Table table;
+  private int n;                                  // number of entries
+  private int mask;                               // table.capacity - 1
+  private final byte[] keyBytes, valueBytes;      // scratch space for encoding
+  private final byte[] slotKey;                   // scratch space for a key read from a slot
+
+  /**
+   * Opens the map stored in the given file, or creates an empty one there
+   * if the file does not exist yet.
+   * @throws IOException if the file cannot be opened or holds some other map
+   */
+  public MappedHashMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+    this(file, keyCodec, valueCodec, 16);
+  }
+
+  /**
+   * Opens the map stored in the given file, or creates an empty one there
+   * that can hold expectedSize entries without growing.
+   * @throws IOException if the file cannot be opened or holds some other map
+   */
+  public MappedHashMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec, int expectedSize)
+      throws IOException {
+    this.file = file;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    keyBytes = new byte[keyCodec.size()];
+    valueBytes = new byte[valueCodec.size()];
+    slotKey = new byte[keyCodec.size() + valueCodec.size()];
+    if (Files.exists(file) && Files.size(file) > 0)
+      load();
+    else
+      table = create(file, powerOfTwo(2L * expectedSize));
+    mask = table.capacity - 1;
+  }
+
+  /** Returns the smallest power of two that is at least cap (and at least 4). */
+  private static int powerOfTwo(long cap) {
+    if (cap <= 4) return 4;
+    if (cap > (1 << 30)) throw new IllegalArgumentException("Capacity too large");
+    return Integer.highestOneBit((int) cap - 1) << 1;
+  }
+
+  /** Maps an existing file, checking that its header matches the codecs. */
+  private void load() throws IOException {
+    int capacity;
+    boolean dirty;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      while (header.hasRemaining() && channel.read(header) >= 0) { }
+      header.flip();
+      if (header.remaining() < HEADER || header.getLong(0) != MAGIC)
+        throw new IOException(file + " does not hold a MappedHashMap");
+      if (header.getInt(8) != keyCodec.size() || header.getInt(12) != valueCodec.size())
+        throw new IOException(file + " holds keys or values of another size");
+      capacity = header.getInt(16);
+      n = header.getInt(20);
+      dirty = header.getInt(24) != 0;
+    }
+    table = new Table(file, keyCodec.size(), valueCodec.size(), capacity);
+    if (dirty)                                    // a put or remove was cut short
+      rebuild(capacity);
+  }
+
+  /** Creates and maps a file holding an empty table with the given capacity. */
+  private Table create(Path path, int capacity) throws IOException {
+    Files.deleteIfExists(path);
+    Table t = new Table(path, keyCodec.size(), valueCodec.size(), capacity);
+    t.header.putInt(8, keyCodec.size());
+    t.header.putInt(12, valueCodec.size());
+    t.header.putInt(16, capacity);
+    t.header.putInt(20, 0);
+    t.header.putInt(24, 0);
+    t.header.putLong(0, MAGIC);                   // written last: the header is now valid
+    return t;
+  }
+
+  /** Hash function over the given bytes (FNV-1a, then the MurmurHash3 finalizer). */
+  private static int hashValue(byte[] bytes, int length) {
+    int h = 0x811c9dc5;
+    for (int b=0; b < length; b++)
+      h = (h ^ bytes[b]) * 0x01000193;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /** Encodes the key into keyBytes. */
+  private void encodeKey(K key) {
+    keyCodec.write(ByteBuffer.wrap(keyBytes), key);
+  }
+
+  /** Returns whether slot j of the table holds the key in keyBytes. */
+  private boolean holdsKey(int j) {
+    table.read(j, slotKey);
+    return Arrays.equals(slotKey, 0, keyBytes.length, keyBytes, 0, keyBytes.length);
+  }
+
+  /**
+   * Returns the slot holding the key in keyBytes, or -(j+1) if there is
+   * none, where j is the empty slot where it would go.
+   */
+  private int findSlot() {
+    int j = hashValue(keyBytes, keyBytes.length) & mask;
+    while (!table.isEmpty(j)) {
+      if (holdsKey(j)) return j;
+      j = (j+1) & mask;                           // keep looking (cyclically)
+    }
+    return -(j+1);                                // a slot is always empty, so we stop
+  }
+
+  /** Returns the size of the map. */
+  @Override
+  public int size() { return n; }
+
+  /** Records the size in the file's header. */
+  private void setSize(int size) {
+    n = size;
+    table.header.putInt(20, n);
+  }
+
+  /** Records in the file's header whether the table is in the middle of a change. */
+  private void setDirty(boolean dirty) { table.header.putInt(24, dirty ? 1 : 0); }
+
+  /**
+   * Returns the value associated with the specified key, or null if no such
+   * entry exists.
+   * @param key  the key whose associated value is to be returned
+   * @return the associated value, or null if no such entry exists
+   */
+  @Override
+  public V get(K key) {
+    encodeKey(key);
+    int j = findSlot();
+    if (j < 0) return null;                       // no match found
+    return valueCodec.read(ByteBuffer.wrap(slotKey, keyBytes.length, valueBytes.length));
+  }
+
+  /**
+   * Associates the given value with the given key. If an entry with
+   * the key was already in the map, this replaced the previous value
+   * with the new one and returns the old value. Otherwise, a new
+   * entry is added and null is returned.
+   * @param key    key with which the specified value is to be associated
+   * @param value  value to be associated with the specified key
+   * @return the previous value associated with the key (or null, if no such entry)
+   * @throws UncheckedIOException if the table has to grow and the new file cannot be written
+   */
+  @Override
+  public V put(K key, V value) {
+    encodeKey(key);
+    valueCodec.write(ByteBuffer.wrap(valueBytes), value);
+    int j = findSlot();
+    V answer = null;
+    setDirty(true);
+    if (j >= 0)                                   // this key has an existing entry
+      answer = valueCodec.read(ByteBuffer.wrap(slotKey, keyBytes.length, valueBytes.length));
+    else {
+      j = -(j+1);
+      setSize(n + 1);
+      modCount++;
+    }
+    table.write(j, keyBytes, valueBytes);
+    if (n > table.capacity / 2)                   // keep load factor <= 0.5
+      grow(2 * table.capacity);
+    setDirty(false);
+    return answer;
+  }
+
+  /**
+   * Removes the entry with the specified key, if present, and returns
+   * its associated value. Otherwise does nothing and returns null.
+   * @param key  the key whose entry is to be removed from the map
+   * @return the previous value associated with the removed key, or null if no such entry exists
+   */
+  @Override
+  public V remove(K key) {
+    encodeKey(key);
+    int j = findSlot();
+    if (j < 0) return null;                       // nothing to remove
+    V answer = valueCodec.read(ByteBuffer.wrap(slotKey, keyBytes.length, valueBytes.length));
+    setDirty(true);
+    closeGap(j);
+    setSize(n - 1);
+    modCount++;
+    setDirty(false);
+    return answer;
+  }
+
+  /**
+   * Empties slot j, then moves later entries of the cluster back to fill
+   * the gap wherever that keeps them reachable from their home slots.
+   */
+  private void closeGap(int j) {
+    byte[] value = new byte[valueBytes.length];
+    byte[] key = new byte[keyBytes.length];
+    for (int i = (j+1) & mask; !table.isEmpty(i); i = (i+1) & mask) {
+      table.read(i, slotKey);
+      int home = hashValue(slotKey, keyBytes.length) & mask;
+      if (((i - home) & mask) >= ((i - j) & mask)) {   // j lies between home and i
+        System.arraycopy(slotKey, 0, key, 0, key.length);
+        System.arraycopy(slotKey, key.length, value, 0, value.length);
+        table.write(j, key, value);
+        j = i;
+      }
+    }
+    table.clear(j);
+  }
+
+  /**
+   * Copies every entry into a new file with the given capacity, which then
+   * replaces the current one.
+   */
+  private void grow(int capacity) {
+    try {
+      rebuild(capacity);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Copies every entry into a new file with the given capacity, counting
+   * them and keeping only the first copy of any key (a move that closeGap
+   * did not finish leaves one behind), and then renames the new file over
+   * the current one.
+   */
+  private void rebuild(int capacity) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".resize");
+    Table bigger = create(temp, capacity);
+    int biggerMask = capacity - 1;
+    int count = 0;
+    byte[] key = new byte[keyBytes.length];
+    byte[] value = new byte[valueBytes.length];
+    for (int i=0; i < table.capacity; i++)
+      if (!table.isEmpty(i)) {
+        table.read(i, slotKey);
+        System.arraycopy(slotKey, 0, key, 0, key.length);
+        System.arraycopy(slotKey, key.length, value, 0, value.length);
+        int j = hashValue(key, key.length) & biggerMask;
+        while (!bigger.isEmpty(j)) {
+          bigger.read(j, slotKey);
+          if (Arrays.equals(slotKey, 0, key.length, key, 0, key.length)) break;
+          j = (j+1) & biggerMask;
+        }
+        if (bigger.isEmpty(j)) {
+          bigger.write(j, key, value);
+          count++;
+        }
+      }
+    bigger.header.putInt(20, count);
+    bigger.flush();                               // complete on disk before it replaces the old file
+    table.channel.close();
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    table = bigger;                               // (its mapping follows the renamed file)
+    mask = biggerMask;
+    n = count;
+  }
+
+
+  //---------------- nested EntryIterator class ----------------
+  /**
+   * Walks the table slot by slot, decoding each entry onto the heap only
+   * when it is returned, and failing fast if the map is modified.
+   */
+  private class EntryIterator implements Iterator<Entry<K,V>> {
+    private int j = 0;                            // next slot to look at
+    private final int expectedModCount = modCount;
+    private final byte[] bytes = new byte[slotKey.length];   // the slot being decoded
+    EntryIterator() { skipEmpty(); }
+    private void skipEmpty() { while (j < table.capacity && table.isEmpty(j)) j++; }
+    public boolean hasNext() { return j < table.capacity; }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (j == table.capacity) throw new NoSuchElementException("No further entries");
+      table.read(j++, bytes);
+      skipEmpty();
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      K key = keyCodec.read(buffer);
+      return new MapEntry<>(key, valueCodec.read(buffer));
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested EntryIterator class -----------
+
+  /**
+   * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: each entry is decoded from the file as it is
+   * reached, and the iterators throw ConcurrentModificationException if the
+   * map is modified while in use.
+   *
+   * @return iterable collection of the map's entries
+   */
+  @Override
+  public Iterable<Entry<K,V>> entrySet() { return () -> new EntryIterator(); }
+
+  /**
+   * Performs the given action on the key and value of each entry, decoding
+   * them straight from the file without making entries.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    int expectedModCount = modCount;
+    byte[] bytes = new byte[slotKey.length];
+    for (int j=0; j < table.capacity; j++)
+      if (!table.isEmpty(j)) {
+        table.read(j, bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        K key = keyCodec.read(buffer);
+        action.accept(key, valueCodec.read(buffer));
+        checkForComodification(expectedModCount);
+      }
+  }
+
+  /** Forces all changes out to the file. */
+  public void flush() { table.flush(); }
+
+  /**
+   * Flushes and closes the file. The map must not be used afterwards. (Its
+   * memory is only unmapped once the garbage collector reclaims it.)
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    table.channel.close();
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Developed for use with the book:
+ *
+ *    Data Structures and Algorithms in Java, Sixth Edition
+ *    Michael T. Goodrich, Roberto Tamassia, and Michael H. Goldwasser
+ *    John Wiley & Sons, 2014
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.datastructures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/*
+ * Map implementation using a hash table with linear probing, tuned for speed.
+ *
+ * Unlike ProbeHashMap, the table length is always a power of two, so the
+ * bucket for a hash code is found with a bit mask rather than with modulo
+ * divisions. Hash codes are scrambled by the MurmurHash3 finalizer, so the
+ * low-order bits used by the mask depend on all bits of the original code.
+ * The scrambled hash of each entry is cached in a parallel int array (with 0
+ * marking an empty slot), so a probe only looks at an entry, and calls
+ * equals, when its full hash matches. Removal shifts later entries of the
+ * cluster back into the gap, so no "defunct" markers are ever left behind.
+ */
+public class MaskedProbeHashMap<K,V> extends AbstractHashMap<K,V> {
+  private MapEntry<K,V>[] table;        // a power-of-two array of entries (null if empty)
+  private int[] hashes;                 // hashes[j] is the hash of table[j], or 0 if empty
+  private int mask;                     // capacity - 1
+
+  /** Creates a hash table with capacity 16. */
+  public MaskedProbeHashMap() { this(16); }
+
+  /** Creates a hash table with the given capacity, rounded up to a power of two. */
+  public MaskedProbeHashMap(int cap) { super(powerOfTwo(cap)); }
+
+  /**
+   * Creates a hash table with the given capacity (rounded up to a power of
+   * two) and maximum load factor, which must be less than 1.
+   */
+  public MaskedProbeHashMap(int cap, double loadFactor) {
+    super(powerOfTwo(cap), DEFAULT_PRIME, probing(loadFactor));
+  }
+
+  /**
+   * Creates a hash table that can hold expectedSize entries, without
+   * resizing, at the given maximum load factor (which must be less than 1).
+   */
+  public static <K,V> MaskedProbeHashMap<K,V> withExpectedSize(int expectedSize, double loadFactor) {
+    return new MaskedProbeHashMap<>(capacityFor(expectedSize, probing(loadFactor)), loadFactor);
+  }
+
+  /** Returns the load factor, if it leaves at least one slot empty. */
+  private static double probing(double loadFactor) {
+    if (!(loadFactor < 1))
+      throw new IllegalArgumentException("Load factor must be less than 1");
+    return loadFactor;
+  }
+
+  /** Returns the smallest power of two that is at least cap (and at least 4). */
+  private static int powerOfTwo(int cap) {
+    if (cap <= 4) return 4;
+    if (cap > (1 << 30)) throw new IllegalArgumentException("Capacity too large");
+    return Integer.highestOneBit(cap - 1) << 1;
+  }
+
+  /**
+   * Creates an empty table having length equal to current capacity, which
+   * is first rounded up to a power of two.
+   */
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  protected void createTable() {
+    capacity = powerOfTwo(capacity);
+    table = (MapEntry<K,V>[]) new MapEntry[capacity];   // safe cast
+    hashes = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Hash function applying the MurmurHash3 finalizer to the default hash
+   * code. Never returns 0, which is reserved for empty slots.
+   */
+  @Override
+  protected int hashValue(K key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return (h == 0 ? 0x9e3779b9 : h);   // the finalizer only maps 0 to 0
+  }
+
+  /** Returns the slot where the search for a key with hash h begins. */
+  @Override
+  protected int bucketOf(int h) { return h & mask; }
+
+  /**
+   * Returns the index of the entry with key k (which is known to have hash
+   * h), or the index of the empty slot where such an entry would go.
+   */
+  private int findSlot(int h, K k) {
+    int j = h & mask;
+    while (hashes[j] != 0 && (hashes[j] != h || !table[j].getKey().equals(k)))
+      j = (j+1) & mask;                         // keep looking (cyclically)
+    return j;                                   // a slot is always empty, so we stop
+  }
+
+  /**
+   * Returns value associated with key k in bucket with hash value h.
+   * If no such entry exists, returns null.
+   * @param h  the full hash of the key (not yet masked)
+   * @param k  the key of interest
+   * @return   associate value (or null, if no such entry)
+   */
+  @Override
+  protected V bucketGet(int h, K k) {
+    int j = findSlot(h, k);
+    if (hashes[j] == 0) return null;            // no match found
+    return table[j].getValue();
+  }
+
+  /**
+   * Associates key k with value v in bucket with hash value h, returning
+   * the previously associated value, if any.
+   * @param h  the full hash of the key (not yet masked)
+   * @param k  the key of interest
+   * @param v  the value to be associated
+   * @return   previous value associated with k (or null, if no such entry)
+   */
+  @Override
+  protected V bucketPut(int h, K k, V v) {
+    int j = findSlot(h, k);
+    if (hashes[j] != 0)                         // this key has an existing entry
+      return table[j].setValue(v);
+    table[j] = new MapEntry<>(k, v);
+    hashes[j] = h;
+    n++;
+    return null;
+  }
+
+  /**
+   * Removes entry having key k from bucket with hash value h, returning
+   * the previously associated value, if found.
+   * @param h  the full hash of the key (not yet masked)
+   * @param k  the key of interest
+   * @return   previous value associated with k (or null, if no such entry)
+   */
+  @Override
+  protected V bucketRemove(int h, K k) {
+    int j = findSlot(h, k);
+    if (hashes[j] == 0) return null;            // nothing to remove
+    V answer = table[j].getValue();
+    closeGap(j);
+    n--;
+    return answer;
+  }
+
+  /**
+   * Empties slot j. Each later entry of the same cluster whose probe
+   * sequence passes over j is moved back into the gap, which then moves to
+   * where that entry was, so every remaining entry stays reachable.
+   */
+  private void closeGap(int j) {
+    for (int i = (j+1) & mask; hashes[i] != 0; i = (i+1) & mask) {
+      int home = hashes[i] & mask;
+      if (((i - home) & mask) >= ((i - j) & mask)) {   // j lies between home and i
+        table[j] = table[i];
+        hashes[j] = hashes[i];
+        j = i;
+      }
+    }
+    table[j] = null;
+    hashes[j] = 0;
+  }
+
+  /**
+   * Returns the average number of slots a successful search examines
+   * (1 means every entry sits at its home slot), or 0 if the map is empty.
+   * This takes time proportional to the capacity.
+   */
+  public double averageProbeLength() {
+    if (n == 0) return 0;
+    long total = 0;
+    for (int j=0; j < capacity; j++)
+      if (hashes[j] != 0) total += ((j - hashes[j]) & mask) + 1;
+    return (double) total / n;
+  }
+
+  /**
+   * Returns the largest number of slots a successful search examines, or 0
+   * if the map is empty. This takes time proportional to the capacity.
+   */
+  public int maxProbeLength() {
+    int max = 0;
+    for (int j=0; j < capacity; j++)
+      if (hashes[j] != 0) max = Math.max(max, ((j - hashes[j]) & mask) + 1);
+    return max;
+  }
+
+  /**
+   * Moves every entry into a new table with at least the given capacity,
+   * reusing the cached hashes (so no hashCode or equals calls are made).
+   */
+  @Override
+  protected void resize(int newCap) {
+    MapEntry<K,V>[] oldTable = table;
+    int[] oldHashes = hashes;
+    capacity = newCap;
+    createTable();                              // rounds capacity up
+    for (int i = 0; i < oldTable.length; i++)
+      if (oldHashes[i] != 0) {
+        int j = oldHashes[i] & mask;
+        while (hashes[j] != 0)                  // keys are distinct, so just find a gap
+          j = (j+1) & mask;
+        table[j] = oldTable[i];
+        hashes[j] = oldHashes[i];
+      }
+  }
+
+  /**
+   * Returns any one entry stored in the bucket at index j, or null if that
+   * bucket is empty.
+   * @param j  the index of the bucket
+   * @return   an entry of the bucket (or null, if it is empty)
+   */
+  @Override
+  protected Entry<K,V> bucketEntry(int j) { return table[j]; }
+
+  //---------------- nested EntryIterator class ----------------
+  /** Walks the table slot by slot, failing fast if the map is modified. */
+  private class EntryIterator implements Iterator<Entry<K,V>> {
+    private int j = 0;                            // next slot to look at
+    private final int expectedModCount = modCount;
+    EntryIterator() { skipEmpty(); }
+    private void skipEmpty() { while (j < capacity && hashes[j] == 0) j++; }
+    public boolean hasNext() { return j < capacity; }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (j == capacity) throw new NoSuchElementException("No further entries");
+      Entry<K,V> answer = table[j++];
+      skipEmpty();
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested EntryIterator class -----------
+
+  //---------------- nested EntryIterable class ----------------
+  private class EntryIterable implements Iterable<Entry<K,V>> {
+    public Iterator<Entry<K,V>> iterator() { return withOldEntries(new EntryIterator()); }
+  } //----------- end of nested EntryIterable class -----------
+
+  /**
+   * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: nothing is copied, and its iterators throw
+   * ConcurrentModificationException if the map is modified while in use.
+   *
+   * @return iterable collection of the map's entries
+   */
+  @Override
+  public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+
+  /**
+   * Performs the given action on the key and value of each entry, reading
+   * them straight from the table.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    forEachOld(action);                           // entries a resize has yet to move
+    int expectedModCount = modCount;
+    for (int j=0; j < capacity; j++)
+      if (hashes[j] != 0) {
+        action.accept(table[j].getKey(), table[j].getValue());
+        checkForComodification(expectedModCount);
+      }
+  }
+}
@@ -22,11 +22,17 @@
  */
 package net.datastructures;
 
-import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /*
  * Map implementation using hash table with linear probing.
  *
+ * Removal uses backward-shift deletion: rather than leaving a "defunct"
+ * marker behind, later entries of the same cluster are moved back into the
+ * gap, so probe sequences never grow longer because of past removals.
+ *
  * @author Eric Zamore
  * @author Michael T. Goodrich
  * @author Roberto Tamassia
@@ -34,7 +40,6 @@ import java.util.ArrayList;
  */
 public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
   private MapEntry<K,V>[] table;        // a fixed array of entries (all initially null)
-  private MapEntry<K,V> DEFUNCT = new MapEntry<>(null, null);   //sentinel
 
   // provide same constructors as base class
   /** Creates a hash table with capacity 17 and prime factor 109345121. */
@@ -46,6 +51,27 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
   /** Creates a hash table with the given capacity and prime factor. */
   public ProbeHashMap(int cap, int p) { super(cap, p); }
 
+  /**
+   * Creates a hash table with the given capacity, prime factor and maximum
+   * load factor, which must be less than 1.
+   */
+  public ProbeHashMap(int cap, int p, double loadFactor) { super(cap, p, probing(loadFactor)); }
+
+  /**
+   * Creates a hash table that can hold expectedSize entries, without
+   * resizing, at the given maximum load factor (which must be less than 1).
+   */
+  public static <K,V> ProbeHashMap<K,V> withExpectedSize(int expectedSize, double loadFactor) {
+    return new ProbeHashMap<>(capacityFor(expectedSize, probing(loadFactor)), DEFAULT_PRIME, loadFactor);
+  }
+
+  /** Returns the load factor, if it leaves at least one slot empty. */
+  private static double probing(double loadFactor) {
+    if (!(loadFactor < 1))
+      throw new IllegalArgumentException("Load factor must be less than 1");
+    return loadFactor;
+  }
+
   /** Creates an empty table having length equal to current capacity. */
   @Override
   @SuppressWarnings({"unchecked"})
@@ -53,33 +79,37 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
     table = (MapEntry<K,V>[]) new MapEntry[capacity];   // safe cast
   }
 
-  /** Returns true if location is either empty or the "defunct" sentinel. */
+  /** Returns true if location is empty. */
   private boolean isAvailable(int j) {
-    return (table[j] == null || table[j] == DEFUNCT);
+    return table[j] == null;
   }
 
   /**
    * Searches for an entry with key equal to k (which is known to have
    * hash value h), returning the index at which it was found, or
-   * returning -(a+1) where a is the index of the first empty or
-   * available slot that can be used to store a new such entry.
+   * returning -(a+1) where a is the index of the empty slot that ended
+   * the search, which can be used to store a new such entry.
    *
    * @param h the precalculated hash value of the given key
    * @param k the key
    * @return index of found entry or if not found, value -(a+1) where a is index of first available slot
    */
   private int findSlot(int h, K k) {
-    int avail = -1;                               // no slot available (thus far)
     int j = h;                                    // index while scanning table
     do {
-      if (isAvailable(j)) {                       // may be either empty or defunct
-        if (avail == -1) avail = j;               // this is the first available slot!
-        if (table[j] == null) break;              // if empty, search fails immediately
-      } else if (table[j].getKey().equals(k))
+      if (isAvailable(j))                         // if empty, search fails immediately
+        return -(j + 1);
+      if (table[j].getKey().equals(k))
         return j;                                 // successful match
       j = (j+1) % capacity;                       // keep looking (cyclically)
     } while (j != h);                             // stop if we return to the start
-    return -(avail + 1);                          // search has failed
+    return -(h + 1);                              // unreachable, a slot is always empty
+  }
+
+  /** Returns how many slots past its hash value the entry at index j sits. */
+  private int displacement(int j) {
+    int home = hashValue(table[j].getKey());
+    return (j - home + capacity) % capacity;
   }
 
   /**
@@ -126,21 +156,105 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
     int j = findSlot(h, k);
     if (j < 0) return null;                   // nothing to remove
     V answer = table[j].getValue();
-    table[j] = DEFUNCT;                       // mark this slot as deactivated
+    closeGap(j);
     n--;
     return answer;
   }
 
+  /**
+   * Empties slot j. Each later entry of the same cluster whose probe
+   * sequence passes over j is moved back into the gap, which then moves to
+   * where that entry was, so every remaining entry stays reachable.
+   */
+  private void closeGap(int j) {
+    for (int i = (j+1) % capacity; i != j && !isAvailable(i); i = (i+1) % capacity)   // (i == j if full)
+      if (displacement(i) >= (i - j + capacity) % capacity) {   // j lies on i's probe path
+        table[j] = table[i];
+        j = i;
+      }
+    table[j] = null;
+  }
+
+  /**
+   * Returns the average number of slots a successful search examines
+   * (1 means every entry sits at its hash value), or 0 if the map is empty.
+   * This takes time proportional to the capacity.
+   */
+  public double averageProbeLength() {
+    if (n == 0) return 0;
+    long total = 0;
+    for (int j=0; j < capacity; j++)
+      if (!isAvailable(j)) total += displacement(j) + 1;
+    return (double) total / n;
+  }
+
+  /**
+   * Returns the largest number of slots a successful search examines, or 0
+   * if the map is empty. This takes time proportional to the capacity.
+   */
+  public int maxProbeLength() {
+    int max = 0;
+    for (int j=0; j < capacity; j++)
+      if (!isAvailable(j)) max = Math.max(max, displacement(j) + 1);
+    return max;
+  }
+
+  /**
+   * Returns any one entry stored in the bucket at index j, or null if that
+   * bucket is empty.
+   * @param j  the index of the bucket
+   * @return   an entry of the bucket (or null, if it is empty)
+   */
+  @Override
+  protected Entry<K,V> bucketEntry(int j) { return table[j]; }
+
+  //---------------- nested EntryIterator class ----------------
+  /** Walks the table slot by slot, failing fast if the map is modified. */
+  private class EntryIterator implements Iterator<Entry<K,V>> {
+    private int j = 0;                            // next slot to look at
+    private final int expectedModCount = modCount;
+    EntryIterator() { skipEmpty(); }
+    private void skipEmpty() { while (j < capacity && isAvailable(j)) j++; }
+    public boolean hasNext() { return j < capacity; }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (j == capacity) throw new NoSuchElementException("No further entries");
+      Entry<K,V> answer = table[j++];
+      skipEmpty();
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested EntryIterator class -----------
+
+  //---------------- nested EntryIterable class ----------------
+  private class EntryIterable implements Iterable<Entry<K,V>> {
+    public Iterator<Entry<K,V>> iterator() { return withOldEntries(new EntryIterator()); }
+  } //----------- end of nested EntryIterable class -----------
+
   /**
    * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: nothing is copied, and its iterators throw
+   * ConcurrentModificationException if the map is modified while in use.
    *
    * @return iterable collection of the map's entries
    */
   @Override
-  public Iterable<Entry<K,V>> entrySet() {
-    ArrayList<Entry<K,V>> buffer = new ArrayList<>();
-    for (int h=0; h < capacity; h++)
-      if (!isAvailable(h)) buffer.add(table[h]);
-    return buffer;
+  public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+
+  /**
+   * Performs the given action on the key and value of each entry, reading
+   * them straight from the table.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    forEachOld(action);                           // entries a resize has yet to move
+    int expectedModCount = modCount;
+    for (int j=0; j < capacity; j++)
+      if (!isAvailable(j)) {
+        action.accept(table[j].getKey(), table[j].getValue());
+        checkForComodification(expectedModCount);
+      }
   }
 }
@@ -22,22 +22,52 @@
  */
 package net.datastructures;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /**
- * An implementation of a map using a sorted table. All accessors run
- * in O(log n) worst-case time, other than subMap, which runs in O(s + log n)
- * where s is the size of the resulting submap, and the complete iterations
- * that run in O(n) time.
+ * An implementation of a map using a sorted table. The table is split into
+ * a sorted array of blocks, each holding from one to BLOCK_SIZE entries in
+ * order, so a search is a binary search for the block followed by one
+ * within it. All accessors run in O(log n) worst-case time, other than
+ * subMap, which runs in O(s + log n) where s is the size of the resulting
+ * submap, and the complete iterations that run in O(n) time. An insertion
+ * or removal shifts entries within one block, and only now and then
+ * (when a block splits or merges) shifts the array of blocks, so it runs
+ * in O(log n + BLOCK_SIZE) amortized time for any n up to many millions,
+ * rather than the O(n) time needed to shift one flat table. The iterables
+ * returned by entrySet and subMap are live views of the table, whose
+ * iterators fail fast if the map is modified.
  *
  * @author Michael T. Goodrich
  * @author Roberto Tamassia
  * @author Michael H. Goldwasser
  */
 public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
+  /** Maximum number of entries in a block. */
+  public static final int BLOCK_SIZE = 512;
 
-  private ArrayList<MapEntry<K,V>> table = new ArrayList<>();
+  //---------------- nested Block class ----------------
+  /** A run of consecutive entries, in entries[0..size-1]. */
+  private static class Block<K,V> {
+    int size = 0;
+    final MapEntry<K,V>[] entries;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Block() { entries = (MapEntry<K,V>[]) new MapEntry[BLOCK_SIZE + 1]; }  // room to split
+  } //----------- end of nested Block class -----------
+
+  /** Returns a new array with room for the given number of blocks. */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K,V> Block<K,V>[] newBlockArray(int length) {
+    return (Block<K,V>[]) new Block[length];            // safe cast
+  }
+
+  private Block<K,V>[] blocks = newBlockArray(1);
+  private int numBlocks = 0;     // blocks[0..numBlocks-1] are in use, and none is empty
+  private int n = 0;             // number of entries
 
   /** Constructs an empty map using the natural ordering of keys. */
   public SortedTableMap() { super(); }
@@ -48,38 +78,64 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    */
   public SortedTableMap(Comparator<K> comp) { super(comp); }
 
-  // variant of binary search that returns relevant index
+  // variants of binary search that return relevant indices
+  /**
+   * Returns the index of the block where the given key belongs: the last
+   * block whose first key is less than or equal to it (or block 0 if there
+   * is none). The table must not be empty.
+   */
+  private int findBlock(K key) {
+    int low = 1, high = numBlocks;           // answer is low-1 once low == high
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(key, blocks[mid].entries[0]) < 0)
+        high = mid;                          // answer is left of mid
+      else
+        low = mid + 1;                       // answer is mid or right of it
+    }
+    return low - 1;
+  }
+
   /**
-   * Returns the smallest index for range table[low..high] inclusive
-   * storing an entry with a key greater than or equal to the given k.
-   * If no such element exists, returns index high+1 by convention.
-   * @param key the query key
-   * @param low the lowest index of the relevant table range
-   * @param high the highest index of the relevant table range
-   * @return lowest j such that table[j] has key greater than or equal to given key
-   * (or index high+1 if no such entry exists)
+   * Returns the smallest index of the given block storing an entry with
+   * a key greater than or equal to the given key, or the block's size if
+   * no such entry exists.
    */
-  private int findIndex(K key, int low, int high) {
-    if (high < low) return high + 1;         // no entry qualifies
-    int mid = (low + high) / 2;
-    int comp = compare(key, table.get(mid));
-    if (comp == 0)
-      return mid;                            // found exact match
-    else if (comp < 0)
-      return findIndex(key, low, mid - 1);   // answer is left of mid (or possibly mid)
-    else
-      return findIndex(key, mid + 1, high);  // answer is right of mid
+  private int findIndex(Block<K,V> block, K key) {
+    int low = 0, high = block.size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(key, block.entries[mid]) > 0)
+        low = mid + 1;                       // answer is right of mid
+      else
+        high = mid;                          // answer is mid or left of it
+    }
+    return low;
   }
 
-  /** Version of findIndex that searches the entire table */
-  private int findIndex(K key) { return findIndex(key, 0, table.size() - 1); }
+  /**
+   * Returns the entry at index j of block b, or else null if there is no
+   * such entry. An index of -1 means the last entry of the previous block,
+   * and an index equal to the block's size means the first of the next.
+   */
+  private Entry<K,V> safeEntry(int b, int j) {
+    if (b < 0 || b >= numBlocks) return null;
+    if (j < 0) {
+      if (--b < 0) return null;
+      j = blocks[b].size - 1;
+    } else if (j >= blocks[b].size) {
+      if (++b == numBlocks) return null;
+      j = 0;
+    }
+    return blocks[b].entries[j];
+  }
 
   /**
    * Returns the number of entries in the map.
    * @return number of entries in the map
    */
   @Override
-  public int size() { return table.size(); }
+  public int size() { return n; }
 
   /**
    * Returns the value associated with the specified key, or null if no such entry exists.
@@ -89,9 +145,11 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
   @Override
   public V get(K key) throws IllegalArgumentException {
     checkKey(key);
-    int j = findIndex(key);
-    if (j == size() || compare(key, table.get(j)) != 0) return null;   // no match
-    return table.get(j).getValue();
+    if (n == 0) return null;
+    Block<K,V> block = blocks[findBlock(key)];
+    int j = findIndex(block, key);
+    if (j == block.size || compare(key, block.entries[j]) != 0) return null;   // no match
+    return block.entries[j].getValue();
   }
 
   /**
@@ -106,10 +164,27 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
   @Override
   public V put(K key, V value) throws IllegalArgumentException {
     checkKey(key);
-    int j = findIndex(key);
-    if (j < size() && compare(key, table.get(j)) == 0)                 // match exists
-      return table.get(j).setValue(value);
-    table.add(j, new MapEntry<K,V>(key,value));                        // otherwise new
+    if (n == 0)
+      addBlock(0, new Block<>());
+    int b = findBlock(key);
+    Block<K,V> block = blocks[b];
+    int j = findIndex(block, key);
+    if (j < block.size && compare(key, block.entries[j]) == 0)            // match exists
+      return block.entries[j].setValue(value);
+    System.arraycopy(block.entries, j, block.entries, j + 1, block.size - j);   // otherwise new
+    block.entries[j] = new MapEntry<>(key, value);
+    block.size++;
+    n++;
+    modCount++;
+    if (block.size > BLOCK_SIZE) {                                         // split it in two
+      Block<K,V> right = new Block<>();
+      int half = block.size / 2;
+      right.size = block.size - half;
+      System.arraycopy(block.entries, half, right.entries, 0, right.size);
+      Arrays.fill(block.entries, half, block.size, null);
+      block.size = half;
+      addBlock(b + 1, right);
+    }
     return null;
   }
 
@@ -122,15 +197,48 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
   @Override
   public V remove(K key) throws IllegalArgumentException {
     checkKey(key);
-    int j = findIndex(key);
-    if (j == size() || compare(key, table.get(j)) != 0) return null;  // no match
-    return table.remove(j).getValue();
+    if (n == 0) return null;
+    int b = findBlock(key);
+    Block<K,V> block = blocks[b];
+    int j = findIndex(block, key);
+    if (j == block.size || compare(key, block.entries[j]) != 0) return null;  // no match
+    V answer = block.entries[j].getValue();
+    System.arraycopy(block.entries, j + 1, block.entries, j, block.size - j - 1);
+    block.entries[--block.size] = null;
+    n--;
+    modCount++;
+    if (block.size == 0)
+      removeBlock(b);
+    else if (block.size < BLOCK_SIZE / 4) {              // merge with a neighbor, if it fits
+      if (b + 1 < numBlocks && block.size + blocks[b + 1].size <= BLOCK_SIZE)
+        mergeBlocks(b);
+      else if (b > 0 && blocks[b - 1].size + block.size <= BLOCK_SIZE)
+        mergeBlocks(b - 1);
+    }
+    return answer;
+  }
+
+  /** Inserts the given block at index b of the array of blocks. */
+  private void addBlock(int b, Block<K,V> block) {
+    if (numBlocks == blocks.length)
+      blocks = Arrays.copyOf(blocks, 2 * blocks.length);
+    System.arraycopy(blocks, b, blocks, b + 1, numBlocks - b);
+    blocks[b] = block;
+    numBlocks++;
+  }
+
+  /** Removes the block at index b of the array of blocks. */
+  private void removeBlock(int b) {
+    System.arraycopy(blocks, b + 1, blocks, b, numBlocks - b - 1);
+    blocks[--numBlocks] = null;
   }
 
-  /** Utility returns the entry at index j, or else null if j is out of bounds. */
-  private Entry<K,V> safeEntry(int j) {
-    if (j < 0 || j >= table.size()) return null;
-    return table.get(j);
+  /** Moves the entries of block b+1 to the end of block b, and removes block b+1. */
+  private void mergeBlocks(int b) {
+    Block<K,V> left = blocks[b], right = blocks[b + 1];
+    System.arraycopy(right.entries, 0, left.entries, left.size, right.size);
+    left.size += right.size;
+    removeBlock(b + 1);
   }
 
   /**
@@ -138,14 +246,17 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    * @return entry with least key (or null if map is empty)
    */
   @Override
-  public Entry<K,V> firstEntry() { return safeEntry(0); }
+  public Entry<K,V> firstEntry() { return safeEntry(0, 0); }
 
   /**
    * Returns the entry having the greatest key (or null if map is empty).
    * @return entry with greatest key (or null if map is empty)
    */
   @Override
-  public Entry<K,V> lastEntry() { return safeEntry(table.size()-1); }
+  public Entry<K,V> lastEntry() {
+    if (n == 0) return null;
+    return safeEntry(numBlocks - 1, blocks[numBlocks - 1].size - 1);
+  }
 
   /**
    * Returns the entry with least key greater than or equal to given key
@@ -155,7 +266,10 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    */
   @Override
   public Entry<K,V> ceilingEntry(K key) throws IllegalArgumentException {
-    return safeEntry(findIndex(key));
+    checkKey(key);
+    if (n == 0) return null;
+    int b = findBlock(key);
+    return safeEntry(b, findIndex(blocks[b], key));
   }
 
   /**
@@ -166,10 +280,14 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    */
   @Override
   public Entry<K,V> floorEntry(K key) throws IllegalArgumentException {
-    int j = findIndex(key);
-    if (j == size() || ! key.equals(table.get(j).getKey()))
+    checkKey(key);
+    if (n == 0) return null;
+    int b = findBlock(key);
+    Block<K,V> block = blocks[b];
+    int j = findIndex(block, key);
+    if (j == block.size || compare(key, block.entries[j]) != 0)
       j--;    // look one earlier (unless we had found a perfect match)
-    return safeEntry(j);
+    return safeEntry(b, j);
   }
 
   /**
@@ -180,7 +298,10 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    */
   @Override
   public Entry<K,V> lowerEntry(K key) throws IllegalArgumentException {
-    return safeEntry(findIndex(key) - 1);   // go strictly before the ceiling entry
+    checkKey(key);
+    if (n == 0) return null;
+    int b = findBlock(key);
+    return safeEntry(b, findIndex(blocks[b], key) - 1);   // go strictly before the ceiling entry
   }
 
   /**
@@ -191,19 +312,58 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    */
   @Override
   public Entry<K,V> higherEntry(K key) throws IllegalArgumentException {
-    int j = findIndex(key);
-    if (j < size() && key.equals(table.get(j).getKey()))
+    checkKey(key);
+    if (n == 0) return null;
+    int b = findBlock(key);
+    Block<K,V> block = blocks[b];
+    int j = findIndex(block, key);
+    if (j < block.size && compare(key, block.entries[j]) == 0)
       j++;    // go past exact match
-    return safeEntry(j);
+    return safeEntry(b, j);
   }
 
-  // support for snapshot iterators for entrySet() and subMap() follow
-  private Iterable<Entry<K,V>> snapshot(int startIndex, K stop) {
-    ArrayList<Entry<K,V>> buffer = new ArrayList<>();
-    int j = startIndex;
-    while (j < table.size() && (stop == null || compare(stop, table.get(j)) > 0))
-      buffer.add(table.get(j++));
-    return buffer;
+  // support for live iterators for entrySet() and subMap() follow
+  //---------------- nested RangeIterator class ----------------
+  /** Walks the table from a start key up to (not including) a stop key. */
+  private class RangeIterator implements Iterator<Entry<K,V>> {
+    private int b, j;                            // next entry is blocks[b].entries[j]
+    private final K stop;
+    private final int expectedModCount = modCount;
+    RangeIterator(K start, K stop) {
+      if (start != null && n > 0) {
+        b = findBlock(start);
+        j = findIndex(blocks[b], start);
+        if (j == blocks[b].size) {               // the ceiling starts the next block
+          b++;
+          j = 0;
+        }
+      }
+      this.stop = stop;
+    }
+    public boolean hasNext() {
+      return b < numBlocks && j < blocks[b].size
+        && (stop == null || compare(stop, blocks[b].entries[j]) > 0);
+    }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (!hasNext()) throw new NoSuchElementException("No further entries");
+      Entry<K,V> answer = blocks[b].entries[j++];
+      if (j == blocks[b].size) {                 // move on to the next block
+        b++;
+        j = 0;
+      }
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested RangeIterator class -----------
+
+  /**
+   * Returns a view of the entries with keys from start (inclusive) to stop
+   * (exclusive), where a null start or stop means the range is unbounded on
+   * that side. Each iterator searches for its starting point afresh.
+   */
+  private Iterable<Entry<K,V>> range(K start, K stop) {
+    return () -> new RangeIterator(start, stop);
   }
 
   /**
@@ -212,7 +372,26 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    * @return iterable collection of the map's entries
    */
   @Override
-  public Iterable<Entry<K,V>> entrySet() { return snapshot(0, null); }
+  public Iterable<Entry<K,V>> entrySet() { return range(null, null); }
+
+  /**
+   * Performs the given action on the key and value of each entry, in
+   * increasing order of keys.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    int expectedModCount = modCount;
+    for (int b=0; b < numBlocks; b++) {
+      Block<K,V> block = blocks[b];
+      for (int j=0; j < block.size; j++) {
+        MapEntry<K,V> e = block.entries[j];
+        action.accept(e.getKey(), e.getValue());
+        checkForComodification(expectedModCount);
+      }
+    }
+  }
 
   /**
    * Returns an iterable containing all keys in the range from
@@ -222,6 +401,8 @@ public class SortedTableMap<K,V> extends AbstractSortedMap<K,V> {
    */
   @Override
   public Iterable<Entry<K,V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
-    return snapshot(findIndex(fromKey), toKey);
+    checkKey(fromKey);
+    checkKey(toKey);
+    return range(fromKey, toKey);
   }
 }
@@ -22,7 +22,6 @@
  */
 package net.datastructures;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -41,7 +40,7 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
    * A specialized version of the LinkedBinaryTree class with
    * additional mutators to support binary search tree operations, and
    * a specialized node class that includes an auxiliary instance
-   * variable for balancing data.
+   * variable for balancing data, and the number of entries in its subtree.
    */
   protected static class BalanceableBinaryTree<K,V>
                          extends LinkedBinaryTree<Entry<K,V>> {
@@ -49,6 +48,7 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
     // this extends the inherited LinkedBinaryTree.Node class
     protected static class BSTNode<E> extends Node<E> {
       int aux=0;
+      int size=0;                     // number of entries in this subtree (0 at a sentinel leaf)
       BSTNode(E e, Node<E> parent, Node<E> leftChild, Node<E> rightChild) {
         super(e, parent, leftChild, rightChild);
       }
@@ -65,6 +65,23 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
       ((BSTNode<Entry<K,V>>) p).setAux(value);
     }
 
+    // positional-based methods related to subtree sizes
+    /** Returns the number of entries in the subtree rooted at p. */
+    public int getSize(Position<Entry<K,V>> p) {
+      return ((BSTNode<Entry<K,V>>) p).size;
+    }
+
+    /** Adds delta to the subtree size of p and of each of its ancestors. */
+    public void adjustSizes(Position<Entry<K,V>> p, int delta) {
+      for (Node<Entry<K,V>> walk = validate(p); walk != null; walk = walk.getParent())
+        ((BSTNode<Entry<K,V>>) walk).size += delta;
+    }
+
+    /** Recomputes the subtree size of internal node x from those of its children. */
+    private void resize(Node<Entry<K,V>> x) {
+      ((BSTNode<Entry<K,V>>) x).size = 1 + getSize(x.getLeft()) + getSize(x.getRight());
+    }
+
     // Override node factory function to produce a BSTNode (rather than a Node)
     @Override
     protected
@@ -93,12 +110,15 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
      *       / \                    / \
      *      t0  t1                 t1  t2
      *</pre>
-     *  Caller should ensure that p is not the root.
+     *  Caller should ensure that p is not the root. Only a and b change
+     *  subtree sizes, and both are recomputed here, so every rotation
+     *  (and so every restructuring) keeps all sizes correct.
      */
     public void rotate(Position<Entry<K,V>> p) {
       Node<Entry<K,V>> x = validate(p);
       Node<Entry<K,V>> y = x.getParent();        // we assume this exists
       Node<Entry<K,V>> z = y.getParent();        // grandparent (possibly null)
+      modCount++;                                // links are about to change
       if (z == null) {
         root = x;                                // x becomes root of the tree
         x.setParent(null);
@@ -112,6 +132,8 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
         relink(y, x.getLeft(), false);           // x's left child becomes y's right
         relink(x, y, true);                      // y becomes left child of x
       }
+      resize(y);                                 // y is now below x, so fix its size first
+      resize(x);
     }
 
     /**
@@ -184,6 +206,7 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
     tree.set(p, entry);            // store new entry at p
     tree.addLeft(p, null);         // add new sentinel leaves as children
     tree.addRight(p, null);
+    tree.adjustSizes(p, 1);        // one more entry in p's subtree and each one above it
   }
 
 
@@ -272,6 +295,7 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
     Entry<K,V> newEntry = new MapEntry<>(key, value);
     Position<Entry<K,V>> p = treeSearch(root(), key);
     if (isExternal(p)) {                    // key is new
+      modCount++;
       expandExternal(p, newEntry);
       rebalanceInsert(p);                   // hook for balanced tree subclasses
       return null;
@@ -297,6 +321,7 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
       rebalanceAccess(p);                   // hook for balanced tree subclasses
       return null;
     } else {
+      modCount++;
       V old = p.getElement().getValue();
       if (isInternal(left(p)) && isInternal(right(p))) { // both children are internal
         Position<Entry<K,V>> replacement = treeMax(left(p));
@@ -307,6 +332,8 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
       Position<Entry<K,V>> sib = sibling(leaf);
       remove(leaf);
       remove(p);                            // sib is promoted in p's place
+      if (!isRoot(sib))
+        tree.adjustSizes(parent(sib), -1);  // one less entry in each subtree above sib
       rebalanceDelete(sib);                 // hook for balanced tree subclasses
       return old;
     }
@@ -417,23 +444,213 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
     return null;                                 // no such greater key exists
   }
 
+  // order statistics, using the subtree sizes kept in every node. Each query
+  // is one walk down the tree, taking O(h) time for a tree of height h: that
+  // is O(log n) for AVLTreeMap and RBTreeMap. The walks do not splay, so a
+  // SplayTreeMap gets no amortized bound, and a query on a degenerate splay
+  // tree takes O(n) time.
+  /**
+   * Returns the number of entries with keys strictly less than the given
+   * key, in a single walk down the tree (O(h) time for height h).
+   * @param key  a key, which need not be in the map
+   * @return the number of entries with lesser keys
+   * @throws IllegalArgumentException if the key is not compatible with the map
+   */
+  public int rank(K key) throws IllegalArgumentException {
+    checkKey(key);                              // may throw IllegalArgumentException
+    int count = 0;
+    Position<Entry<K,V>> walk = root();
+    while (isInternal(walk))
+      if (compare(key, walk.getElement()) <= 0)
+        walk = left(walk);
+      else {
+        count += tree.getSize(left(walk)) + 1;  // walk and its whole left subtree are less
+        walk = right(walk);
+      }
+    return count;
+  }
+
+  /**
+   * Returns the entry with the given index in increasing order of keys,
+   * so that select(0) is the first entry and select(rank(k)) is the ceiling
+   * entry of k, in a single walk down the tree (O(h) time for height h).
+   * @param i  an index from 0 to size()-1
+   * @return the entry having exactly i lesser keys
+   * @throws IndexOutOfBoundsException if i is not a valid index
+   */
+  public Entry<K,V> select(int i) throws IndexOutOfBoundsException {
+    if (i < 0 || i >= size())
+      throw new IndexOutOfBoundsException("Illegal index: " + i);
+    return selectPosition(i).getElement();
+  }
+
+  /** Returns the position of the entry with index i, which must be valid. */
+  private Position<Entry<K,V>> selectPosition(int i) {
+    Position<Entry<K,V>> walk = root();
+    while (true) {
+      int leftSize = tree.getSize(left(walk));
+      if (i < leftSize)
+        walk = left(walk);
+      else if (i == leftSize)
+        return walk;
+      else {
+        i -= leftSize + 1;                      // skip walk and its left subtree
+        walk = right(walk);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries with keys in the range from
+   * <code>fromKey</code> inclusive to <code>toKey</code> exclusive, without
+   * visiting them, in O(h) time for height h.
+   * @return number of entries with keys in the range
+   * @throws IllegalArgumentException if <code>fromKey</code> or <code>toKey</code> is not compatible with the map
+   */
+  public int countInRange(K fromKey, K toKey) throws IllegalArgumentException {
+    return Math.max(0, rank(toKey) - rank(fromKey));
+  }
+
   // Support for iteration
+  /**
+   * Returns the position with the next greater key after internal position
+   * p (or null if p has the greatest key).
+   */
+  private Position<Entry<K,V>> successor(Position<Entry<K,V>> p) {
+    if (isInternal(right(p)))
+      return treeMin(right(p));
+    while (!isRoot(p) && p == right(parent(p)))
+      p = parent(p);                    // climb while coming up from the right
+    return (isRoot(p) ? null : parent(p));
+  }
+
+  /**
+   * Returns the position with the next lesser key before internal position
+   * p (or null if p has the least key).
+   */
+  private Position<Entry<K,V>> predecessor(Position<Entry<K,V>> p) {
+    if (isInternal(left(p)))
+      return treeMax(left(p));
+    while (!isRoot(p) && p == left(parent(p)))
+      p = parent(p);                    // climb while coming up from the left
+    return (isRoot(p) ? null : parent(p));
+  }
+
+  /**
+   * Returns the internal position with the least key greater than or equal
+   * to the given key (or null if there is none), in a single walk down.
+   */
+  private Position<Entry<K,V>> ceilingPosition(K key) {
+    Position<Entry<K,V>> walk = root(), found = null;
+    while (isInternal(walk))
+      if (compare(key, walk.getElement()) <= 0) {
+        found = walk;                   // a candidate; look for a smaller one
+        walk = left(walk);
+      } else
+        walk = right(walk);
+    return found;
+  }
+
+  /**
+   * Returns the internal position with the greatest key strictly less than
+   * the given key (or null if there is none), in a single walk down.
+   */
+  private Position<Entry<K,V>> lowerPosition(K key) {
+    Position<Entry<K,V>> walk = root(), found = null;
+    while (isInternal(walk))
+      if (compare(walk.getElement(), key) < 0) {
+        found = walk;                   // a candidate; look for a greater one
+        walk = right(walk);
+      } else
+        walk = left(walk);
+    return found;
+  }
+
+  //---------------- nested RangeIterator class ----------------
+  /**
+   * Walks the entries with keys from a start key (inclusive) to a stop key
+   * (exclusive), in either order, skipping a number of them first and
+   * stopping after a limit. It seeks its first position in O(h) time,
+   * using the subtree sizes to skip the offset, then moves from position to
+   * neighbor, which takes O(1) amortized time per entry, and holds nothing
+   * but its current position. It fails fast if entries are added or
+   * removed. Rotations (such as those of a splay tree on every access) keep
+   * each position's entry and the order of positions, so a walk by
+   * successor links stays correct across them and does not fail.
+   */
+  private class RangeIterator implements Iterator<Entry<K,V>> {
+    private Position<Entry<K,V>> walk;
+    private final K start, stop;                       // null if unbounded on that side
+    private final boolean descending;
+    private int remaining;                             // entries still allowed by the limit
+    private final int expectedModCount = modCount;
+    RangeIterator(K start, K stop, boolean descending, int offset, int limit) {
+      this.start = start;
+      this.stop = stop;
+      this.descending = descending;
+      remaining = limit;
+      if (offset > 0) {                                // jump straight to the first entry wanted
+        long i = (descending ? (stop == null ? size() : rank(stop)) - 1L - offset
+                             : (start == null ? 0 : rank(start)) + (long) offset);
+        walk = (i >= 0 && i < size() ? selectPosition((int) i) : null);
+      } else if (isEmpty())
+        walk = null;
+      else if (descending)
+        walk = (stop == null ? treeMax(root()) : lowerPosition(stop));
+      else
+        walk = (start == null ? treeMin(root()) : ceilingPosition(start));
+      checkBound();
+    }
+    /** Moves walk to the neighbor in the direction of travel. */
+    private void advance() {
+      walk = (descending ? predecessor(walk) : successor(walk));
+      checkBound();
+    }
+    /** Ends the walk if it has passed the far end of the range. */
+    private void checkBound() {
+      if (walk == null) return;
+      if (descending ? (start != null && compare(walk.getElement(), start) < 0)
+                     : (stop != null && compare(walk.getElement(), stop) >= 0))
+        walk = null;
+    }
+    public boolean hasNext() { return walk != null && remaining > 0; }
+    public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
+      if (!hasNext()) throw new NoSuchElementException("No further entries");
+      Entry<K,V> answer = walk.getElement();
+      remaining--;
+      if (remaining > 0)                               // no need to look further at the limit
+        advance();
+      return answer;
+    }
+    public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+  } //----------- end of nested RangeIterator class -----------
+
   /**
    * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: nothing is copied, and its iterators throw
+   * ConcurrentModificationException if the map is modified while in use.
    *
    * @return iterable collection of the map's entries
    */
   @Override
-  public Iterable<Entry<K,V>> entrySet() {
-    ArrayList<Entry<K,V>> buffer = new ArrayList<>(size());
-    for (Position<Entry<K,V>> p : tree.inorder())
-      if (isInternal(p)) buffer.add(p.getElement());
-    return buffer;
+  public Iterable<Entry<K,V>> entrySet() { return range(null, null, false, 0, Integer.MAX_VALUE); }
+
+  /**
+   * Returns an iterable collection of all key-value entries of the map, in
+   * decreasing order of keys. Like entrySet, this is a live view.
+   *
+   * @return iterable collection of the map's entries, from greatest key to least
+   */
+  public Iterable<Entry<K,V>> descendingEntrySet() {
+    return range(null, null, true, 0, Integer.MAX_VALUE);
   }
 
   /**
    * Returns an iterable containing all entries with keys in the range from
-   * <code>fromKey</code> inclusive to <code>toKey</code> exclusive.
+   * <code>fromKey</code> inclusive to <code>toKey</code> exclusive. This is
+   * a live view; each iterator finds its first entry in O(h) time and
+   * then walks from entry to entry, so stopping early costs nothing.
    * @return iterable with keys in desired range
    * @throws IllegalArgumentException if <code>fromKey</code> or <code>toKey</code> is not compatible with the map
    */
@@ -441,26 +658,33 @@ public class TreeMap<K,V> extends AbstractSortedMap<K,V> {
   public Iterable<Entry<K,V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
     checkKey(fromKey);                                // may throw IllegalArgumentException
     checkKey(toKey);                                  // may throw IllegalArgumentException
-    ArrayList<Entry<K,V>> buffer = new ArrayList<>(size());
-    if (compare(fromKey, toKey) < 0)                  // ensure that fromKey < toKey
-      subMapRecurse(fromKey, toKey, root(), buffer);
-    return buffer;
+    return range(fromKey, toKey, false, 0, Integer.MAX_VALUE);
   }
 
-  // utility to fill subMap buffer recursively (while maintaining order)
-  private void subMapRecurse(K fromKey, K toKey, Position<Entry<K,V>> p,
-                              ArrayList<Entry<K,V>> buffer) {
-    if (isInternal(p))
-      if (compare(p.getElement(), fromKey) < 0)
-        // p's key is less than fromKey, so any relevant entries are to the right
-        subMapRecurse(fromKey, toKey, right(p), buffer);
-      else {
-        subMapRecurse(fromKey, toKey, left(p), buffer); // first consider left subtree
-        if (compare(p.getElement(), toKey) < 0) {       // p is within range
-          buffer.add(p.getElement());                      // so add it to buffer, and consider
-          subMapRecurse(fromKey, toKey, right(p), buffer); // right subtree as well
-        }
-      }
+  /**
+   * Returns a page of the entries with keys in the range from
+   * <code>fromKey</code> inclusive to <code>toKey</code> exclusive, where a
+   * null key means the range is unbounded on that side. The entries are in
+   * increasing order of keys, or decreasing if <code>descending</code> is
+   * true; the first <code>offset</code> of them are skipped and at most
+   * <code>limit</code> are returned. This is a live view, and each iterator
+   * uses O(1) space and O(h + limit) amortized time,
+   * where h is the height of the tree.
+   * @param fromKey     least key of the range (or null for no lower bound)
+   * @param toKey       key just past the range (or null for no upper bound)
+   * @param descending  whether to return the entries from greatest key to least
+   * @param offset      number of entries of the range to skip
+   * @param limit       maximum number of entries to return
+   * @return iterable with the requested entries
+   * @throws IllegalArgumentException if a key is not compatible with the map, or offset or limit is negative
+   */
+  public Iterable<Entry<K,V>> range(K fromKey, K toKey, boolean descending, int offset, int limit)
+    throws IllegalArgumentException {
+    if (fromKey != null) checkKey(fromKey);           // may throw IllegalArgumentException
+    if (toKey != null) checkKey(toKey);               // may throw IllegalArgumentException
+    if (offset < 0 || limit < 0)
+      throw new IllegalArgumentException("Offset and limit must be nonnegative");
+    return () -> new RangeIterator(fromKey, toKey, descending, offset, limit);
   }
 
   // Stubs for balanced search tree operations (subclasses can override)
@@ -25,6 +25,7 @@ package net.datastructures;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /**
  * An implementation of a map using an unsorted table.
@@ -84,6 +85,7 @@ public class UnsortedTableMap<K,V> extends AbstractMap<K,V> {
     int j = findIndex(key);
     if (j == -1) {
       table.add(new MapEntry<>(key, value));          // add new entry
+      modCount++;
       return null;
     } else                                            // key already exists
       return table.get(j).setValue(value);            // replaced value is returned
@@ -104,14 +106,17 @@ public class UnsortedTableMap<K,V> extends AbstractMap<K,V> {
     if (j != n - 1)
       table.set(j, table.get(n-1));                   // relocate last entry to 'hole' created by removal
     table.remove(n-1);                                // remove last entry of table
+    modCount++;
     return answer;
   }
 
   //---------------- nested EntryIterator class ----------------
   private class EntryIterator implements Iterator<Entry<K,V>> {
     private int j=0;
+    private final int expectedModCount = modCount;
     public boolean hasNext() { return j < table.size(); }
     public Entry<K,V> next() {
+      checkForComodification(expectedModCount);
       if (j == table.size()) throw new NoSuchElementException("No further entries");
       return table.get(j++);
     }
@@ -125,9 +130,27 @@ public class UnsortedTableMap<K,V> extends AbstractMap<K,V> {
 
   /**
    * Returns an iterable collection of all key-value entries of the map.
+   * This is a live view: nothing is copied, and its iterators throw
+   * ConcurrentModificationException if the map is modified while in use.
    *
    * @return iterable collection of the map's entries
    */
   @Override
   public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+
+  /**
+   * Performs the given action on the key and value of each entry, reading
+   * them straight from the table.
+   * @param action  the action to be performed on each key and value
+   * @throws ConcurrentModificationException if the action modifies the map
+   */
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    int expectedModCount = modCount;
+    for (int j=0; j < table.size(); j++) {
+      MapEntry<K,V> e = table.get(j);
+      action.accept(e.getKey(), e.getValue());
+      checkForComodification(expectedModCount);
+    }
+  }
 }